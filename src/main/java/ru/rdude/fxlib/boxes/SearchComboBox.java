@@ -2,6 +2,7 @@ package ru.rdude.fxlib.boxes;
 
 import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.collections.transformation.FilteredList;
 import javafx.scene.control.ComboBox;
@@ -10,7 +11,9 @@ import javafx.scene.input.KeyEvent;
 import javafx.util.StringConverter;
 import ru.rdude.fxlib.containers.selector.NamedSelectorElementNode;
 import ru.rdude.fxlib.containers.selector.SelectorElementNode;
+import utils.DisplayNameCache;
 import utils.FunctionRawOrProperty;
+import utils.SearchKeyCache;
 
 import java.util.*;
 import java.util.function.Function;
@@ -26,12 +29,20 @@ import java.util.stream.Collectors;
  * to the setNameBy() method.
  * Both options can be set at once with setNameAndSearchBy() method.
  * Items can be set from any collection by using setCollection() method.
+ * Lower cased results of search functions are cached per element.
  */
 public class SearchComboBox<T> extends ComboBox<T> implements NamedSelectorElementNode<T> {
 
+    private ObservableList<T> source;
     private FilteredList<T> filteredList;
     private boolean isTyped;
     private Set<FunctionRawOrProperty<T, String>> searchFunctions;
+    private final SearchKeyCache<T> searchKeyCache = new SearchKeyCache<>(List.of());
+    private final DisplayNameCache<T> nameCache = new DisplayNameCache<>(FunctionRawOrProperty.raw(Object::toString));
+    private final ListChangeListener<T> collectionListener = change -> {
+        searchKeyCache.listChanged(change);
+        nameCache.listChanged(change);
+    };
     private boolean searchEnabled = true;
 
 
@@ -45,15 +56,24 @@ public class SearchComboBox<T> extends ComboBox<T> implements NamedSelectorEleme
         setCollection(items);
         isTyped = false;
         searchFunctions = Set.of(FunctionRawOrProperty.raw(Object::toString));
+        searchKeyCache.setFunctions(searchFunctions);
     }
 
     public void setCollection(Collection<T> collection) {
+        if (source != null) {
+            source.removeListener(collectionListener);
+        }
         if (collection instanceof ObservableList) {
-            filteredList = new FilteredList<>((ObservableList<T>) collection);
+            source = (ObservableList<T>) collection;
         }
         else {
-            filteredList = new FilteredList<>(FXCollections.observableList(new ArrayList<>(collection)));
+            source = FXCollections.observableList(new ArrayList<>(collection));
         }
+        // cached keys must be invalidated before filtered list tests changed elements
+        source.addListener(collectionListener);
+        filteredList = new FilteredList<>(source);
+        searchKeyCache.clear();
+        nameCache.clear();
         setItems(filteredList);
     }
 
@@ -92,6 +112,7 @@ public class SearchComboBox<T> extends ComboBox<T> implements NamedSelectorEleme
         this.searchFunctions = functions.stream()
                 .map(FunctionRawOrProperty::raw)
                 .collect(Collectors.toSet());
+        searchKeyCache.setFunctions(searchFunctions);
     }
 
     public void setSearchByProperty(Function<T, ObservableValue<String>> function, Function<T, ObservableValue<String>>... functions) {
@@ -110,33 +131,45 @@ public class SearchComboBox<T> extends ComboBox<T> implements NamedSelectorEleme
         this.searchFunctions = functions.stream()
                 .map(FunctionRawOrProperty::property)
                 .collect(Collectors.toSet());
+        searchKeyCache.setFunctions(searchFunctions);
     }
 
     public void setNameBy(Function<T, String> function) {
         if (function == null) {
             throw new NullPointerException();
         }
-        setConverter(new StringConverter<T>() {
-            @Override
-            public String toString(T t) {
-                return t != null ? function.apply(t) : null;
-            }
-
-            @Override
-            public T fromString(String s) {
-                return null;
-            }
-        });
+        setNameFunction(FunctionRawOrProperty.raw(function));
     }
 
     public void setNameByProperty(Function<T, ObservableValue<String>> function) {
         if (function == null) {
             throw new NullPointerException();
         }
+        setNameFunction(FunctionRawOrProperty.property(function));
+    }
+
+    /**
+     * Set number of element names kept to avoid calling name function on every layout and prompt text update.
+     * Least recently used names are removed first. Names of removed and updated elements are removed
+     * automatically, as well as names returned by property name function when property changes.
+     * Disabled by default.
+     *
+     * @param size maximum number of cached names, 0 to disable cache.
+     */
+    public void setNameCacheSize(int size) {
+        nameCache.setMaxSize(size);
+    }
+
+    public int getNameCacheSize() {
+        return nameCache.getMaxSize();
+    }
+
+    private void setNameFunction(FunctionRawOrProperty<T, String> function) {
+        nameCache.setFunction(function);
         setConverter(new StringConverter<T>() {
             @Override
             public String toString(T t) {
-                return t != null ? function.apply(t).getValue() : null;
+                return t != null ? nameCache.get(t) : null;
             }
 
             @Override
@@ -160,8 +193,8 @@ public class SearchComboBox<T> extends ComboBox<T> implements NamedSelectorEleme
             if (isTyped) {
                 isTyped = false;
                 if (!newV.isEmpty() && isShowing() && isEditable()) {
-                    filteredList.setPredicate(e -> searchFunctions.stream()
-                            .anyMatch(func -> func.apply(e).toLowerCase().contains(newV.toLowerCase())));
+                    final String text = newV.toLowerCase();
+                    filteredList.setPredicate(e -> searchKeyCache.get(e).contains(text));
                 } else {
                     filteredList.setPredicate(e -> true);
                 }
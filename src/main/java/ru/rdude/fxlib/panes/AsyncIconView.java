@@ -0,0 +1,85 @@
+package ru.rdude.fxlib.panes;
+
+import javafx.beans.value.ChangeListener;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+
+/**
+ * Image view of a list cell that shows icon from the shared icon cache.
+ * Placeholder is shown while icon is loading. When cell shows another element or becomes empty
+ * or is removed from the scene, the icon it was waiting for is released, so icons of cells that scrolled away
+ * stop loading.
+ */
+class AsyncIconView extends ImageView {
+
+    private final double width;
+    private final double height;
+    private final Image placeholder;
+    private final ChangeListener<Number> progressListener = (observable, oldV, newV) -> loaded();
+    private String url;
+    private Image loading;
+    private Image shown;
+
+    AsyncIconView(double width, double height, Image placeholder) {
+        this.width = width;
+        this.height = height;
+        this.placeholder = placeholder;
+        setFitWidth(width);
+        setFitHeight(height);
+        setPreserveRatio(true);
+        // cells of the replaced cell factory are removed from the list view without becoming empty
+        sceneProperty().addListener((observable, oldV, newV) -> {
+            if (newV == null) {
+                release();
+            }
+        });
+    }
+
+    void show(String url) {
+        if (url != null && url.equals(this.url)) {
+            return;
+        }
+        release();
+        this.url = url;
+        if (url == null) {
+            setImage(placeholder);
+            return;
+        }
+        Image image = IconCache.SHARED.acquire(url, width, height);
+        if (image.getProgress() >= 1d) {
+            shown = image;
+            setImage(image.isError() ? placeholder : image);
+        }
+        else {
+            loading = image;
+            setImage(placeholder);
+            image.progressProperty().addListener(progressListener);
+        }
+    }
+
+    /**
+     * Stop waiting for the current icon.
+     */
+    void release() {
+        if (loading != null) {
+            loading.progressProperty().removeListener(progressListener);
+            IconCache.SHARED.release(url, width, height, loading);
+            loading = null;
+        }
+        if (shown != null) {
+            IconCache.SHARED.release(url, width, height, shown);
+            shown = null;
+        }
+        url = null;
+    }
+
+    private void loaded() {
+        if (loading == null || loading.getProgress() < 1d) {
+            return;
+        }
+        loading.progressProperty().removeListener(progressListener);
+        shown = loading;
+        loading = null;
+        setImage(shown.isError() ? placeholder : shown);
+    }
+}
@@ -0,0 +1,23 @@
+package ru.rdude.fxlib.panes;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a controller which controls are linked to the element getters by SearchPane addNodeAndAutoLinkControls method.
+ * For every marked controller a SearchPaneLinker is generated at compile time, so linking does not use reflection.
+ * Controller fields and element getters are matched by name same way as with reflection ("get" and "is" are ignored).
+ * Only fields declared by the controller which type is a Control are linked. Linked fields and getters must not be private,
+ * getters of element class from other package must be public.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface AutoLinkControls {
+
+    /**
+     * @return class of the elements in search pane.
+     */
+    Class<?> value();
+}
@@ -0,0 +1,95 @@
+package ru.rdude.fxlib.panes;
+
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.beans.value.WeakChangeListener;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Listens to observable values of elements and reports which element changed.
+ * Functions are applied to every watched element and every returned ObservableValue is listened to.
+ * Other returned values are ignored. Each observable is listened to once, no matter how many functions return it,
+ * and observables hold only weak references to the watcher.
+ *
+ * @param <T> type of elements.
+ */
+class ElementWatcher<T> {
+
+    private final Consumer<T> onChange;
+    private final Map<T, List<ObservableValue<?>>> watched = new IdentityHashMap<>();
+    private final Map<ObservableValue<?>, List<T>> owners = new IdentityHashMap<>();
+    private final ChangeListener<Object> strongListener = (observable, oldV, newV) -> changed(observable);
+    private final ChangeListener<Object> listener = new WeakChangeListener<>(strongListener);
+    private List<Function<T, ?>> functions = List.of();
+
+    ElementWatcher(Consumer<T> onChange) {
+        this.onChange = onChange;
+    }
+
+    /**
+     * Set functions that return observable values of elements. Already watched elements are not rewatched.
+     */
+    void setFunctions(List<Function<T, ?>> functions) {
+        this.functions = new ArrayList<>(functions);
+    }
+
+    @SuppressWarnings("unchecked")
+    void watch(T t) {
+        List<ObservableValue<?>> observables = watched.computeIfAbsent(t, k -> new ArrayList<>());
+        for (Function<T, ?> function : functions) {
+            Object value = function.apply(t);
+            if (!(value instanceof ObservableValue) || containsIdentity(observables, value)) {
+                continue;
+            }
+            ObservableValue<Object> observable = (ObservableValue<Object>) value;
+            observables.add(observable);
+            List<T> elements = owners.computeIfAbsent(observable, k -> new ArrayList<>(1));
+            if (elements.isEmpty()) {
+                observable.addListener(listener);
+            }
+            elements.add(t);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void unwatch(T t) {
+        List<ObservableValue<?>> observables = watched.remove(t);
+        if (observables == null) {
+            return;
+        }
+        for (ObservableValue<?> observable : observables) {
+            List<T> elements = owners.get(observable);
+            elements.removeIf(element -> element == t);
+            if (elements.isEmpty()) {
+                owners.remove(observable);
+                ((ObservableValue<Object>) observable).removeListener(listener);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void clear() {
+        owners.keySet().forEach(observable -> ((ObservableValue<Object>) observable).removeListener(listener));
+        owners.clear();
+        watched.clear();
+    }
+
+    private void changed(ObservableValue<?> observable) {
+        List<T> elements = owners.get(observable);
+        if (elements != null) {
+            new ArrayList<>(elements).forEach(onChange);
+        }
+    }
+
+    private static boolean containsIdentity(List<?> list, Object value) {
+        for (Object o : list) {
+            if (o == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,256 @@
+package ru.rdude.fxlib.panes;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Hash index of getter results. Every distinct value points to the rows having it, so rows with a selected
+ * value are found in time proportional to the number of matches. If collections are expanded, row with
+ * a collection value is indexed under every element of the collection (inverted index of tags), so rows
+ * containing all selected tags are found by intersecting rows of every tag.
+ * Values are stored by index slots, so removed, inserted and moved rows do not rebuild the index.
+ * When value of a single row changes, row is marked as stale and checked separately,
+ * index is rebuilt when too many rows are stale or removed.
+ *
+ * @param <T> type of indexed elements.
+ */
+class EqualityIndex<T> extends SlotIndex<T> {
+
+    private final Function<T, ?> getter;
+    private final boolean expandCollections;
+    private final Map<Object, IntList> slotLists = new HashMap<>();
+    private final BitSet nullSlots = new BitSet();
+    // slots which values are collections, only if collections are expanded
+    private final BitSet collectionSlots = new BitSet();
+    // current value of every slot, used to check stale slots
+    private final List<Object> values = new ArrayList<>();
+
+    EqualityIndex(Function<T, ?> getter, boolean expandCollections) {
+        this.getter = getter;
+        this.expandCollections = expandCollections;
+    }
+
+    @Override
+    void addSlots(int first, List<? extends T> added) {
+        int slot = first;
+        for (T t : added) {
+            addSlot(slot++, SearchMatchers.unwrap(getter.apply(t)));
+        }
+    }
+
+    @Override
+    void updateSlot(int slot, T t) {
+        Object value = SearchMatchers.unwrap(getter.apply(t));
+        values.set(slot, value);
+        nullSlots.set(slot, value == null);
+        collectionSlots.set(slot, expandCollections && value instanceof Collection);
+    }
+
+    @Override
+    void clear() {
+        slotLists.clear();
+        nullSlots.clear();
+        collectionSlots.clear();
+        values.clear();
+    }
+
+    /**
+     * Find rows which value is equal to the key or, if collections are expanded, is a collection containing the key.
+     *
+     * @param source source list this index is built on.
+     * @param key    value to find.
+     * @return set of matching rows.
+     */
+    BitSet rows(List<? extends T> source, Object key) {
+        ensureBuilt(source);
+        BitSet result = new BitSet(values.size());
+        IntList list = slotLists.get(key);
+        if (list != null) {
+            for (int i = 0; i < list.size(); i++) {
+                result.set(list.get(i));
+            }
+        }
+        for (int slot = stale.nextSetBit(0); slot >= 0; slot = stale.nextSetBit(slot + 1)) {
+            Object value = values.get(slot);
+            result.set(slot, key.equals(value)
+                    || (expandCollections && value instanceof Collection && containsSafe((Collection<?>) value, key)));
+        }
+        return slots.toRows(result);
+    }
+
+    /**
+     * Find rows which collection contains all the keys or which not collection value is one of the keys.
+     * Rows lists of the keys are intersected starting from the shortest one. Collections are expected to be expanded.
+     *
+     * @param source source list this index is built on.
+     * @param keys   keys to find.
+     * @return set of matching rows.
+     */
+    BitSet all(List<? extends T> source, Collection<?> keys) {
+        ensureBuilt(source);
+        BitSet result;
+        if (keys.isEmpty()) {
+            result = (BitSet) collectionSlots.clone();
+        }
+        else {
+            List<IntList> lists = new ArrayList<>();
+            for (Object key : new HashSet<>(keys)) {
+                lists.add(slotLists.getOrDefault(key, new IntList(1)));
+            }
+            lists.sort(Comparator.comparingInt(IntList::size));
+            result = new BitSet(values.size());
+            IntList smallest = lists.get(0);
+            for (int i = 0; i < smallest.size(); i++) {
+                int slot = smallest.get(i);
+                boolean inAll = true;
+                for (int j = 1; j < lists.size() && inAll; j++) {
+                    inAll = lists.get(j).contains(slot);
+                }
+                if (inAll) {
+                    result.set(slot);
+                }
+            }
+            result.and(collectionSlots);
+            BitSet single = any(keys);
+            single.andNot(collectionSlots);
+            result.or(single);
+        }
+        for (int slot = stale.nextSetBit(0); slot >= 0; slot = stale.nextSetBit(slot + 1)) {
+            Object value = values.get(slot);
+            result.set(slot, value instanceof Collection ? containsAllSafe((Collection<?>) value, keys) : keys.contains(value));
+        }
+        return slots.toRows(result);
+    }
+
+    /**
+     * Find rows which collection contains at least one of the keys or which not collection value is one of the keys.
+     * If there are no keys, all collections match. Collections are expected to be expanded.
+     *
+     * @param source source list this index is built on.
+     * @param keys   keys to find.
+     * @return set of matching rows.
+     */
+    BitSet any(List<? extends T> source, Collection<?> keys) {
+        ensureBuilt(source);
+        BitSet result = keys.isEmpty() ? (BitSet) collectionSlots.clone() : any(keys);
+        for (int slot = stale.nextSetBit(0); slot >= 0; slot = stale.nextSetBit(slot + 1)) {
+            Object value = values.get(slot);
+            result.set(slot, value instanceof Collection
+                    ? keys.isEmpty() || keys.stream().anyMatch(key -> containsSafe((Collection<?>) value, key))
+                    : keys.contains(value));
+        }
+        return slots.toRows(result);
+    }
+
+    private BitSet any(Collection<?> keys) {
+        BitSet result = new BitSet(values.size());
+        for (Object key : keys) {
+            IntList list = slotLists.get(key);
+            if (list != null) {
+                for (int i = 0; i < list.size(); i++) {
+                    result.set(list.get(i));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find rows which value is null or passes the test. Distinct values are tested once.
+     *
+     * @param source source list this index is built on.
+     * @param test   test of a distinct not null value.
+     * @return set of matching rows.
+     */
+    BitSet matching(List<? extends T> source, Predicate<Object> test) {
+        ensureBuilt(source);
+        BitSet result = (BitSet) nullSlots.clone();
+        slotLists.forEach((value, list) -> {
+            if (test.test(value)) {
+                for (int i = 0; i < list.size(); i++) {
+                    result.set(list.get(i));
+                }
+            }
+        });
+        for (int slot = stale.nextSetBit(0); slot >= 0; slot = stale.nextSetBit(slot + 1)) {
+            Object value = values.get(slot);
+            result.set(slot, value == null || test.test(value));
+        }
+        return slots.toRows(result);
+    }
+
+    /**
+     * @param source source list this index is built on.
+     * @return set of rows which value is null.
+     */
+    BitSet nullRows(List<? extends T> source) {
+        ensureBuilt(source);
+        return slots.toRows((BitSet) nullSlots.clone());
+    }
+
+    /**
+     * Count rows having every distinct value. Row with expanded collection is counted once for every distinct element.
+     * Null values are not counted.
+     *
+     * @param source source list this index is built on.
+     * @param within rows to count.
+     * @return number of rows by value.
+     */
+    Map<Object, Integer> counts(List<? extends T> source, BitSet within) {
+        ensureBuilt(source);
+        BitSet withinSlots = slots.toSlots(within);
+        Map<Object, Integer> counts = new HashMap<>();
+        for (int slot = withinSlots.nextSetBit(0); slot >= 0 && slot < values.size(); slot = withinSlots.nextSetBit(slot + 1)) {
+            Object value = values.get(slot);
+            if (value == null) {
+                continue;
+            }
+            if (expandCollections && value instanceof Collection) {
+                for (Object element : new HashSet<>((Collection<?>) value)) {
+                    counts.merge(element, 1, Integer::sum);
+                }
+            }
+            else {
+                counts.merge(value, 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    private void addSlot(int slot, Object value) {
+        values.add(value);
+        if (value == null) {
+            nullSlots.set(slot);
+        }
+        else if (expandCollections && value instanceof Collection) {
+            collectionSlots.set(slot);
+            for (Object element : (Collection<?>) value) {
+                IntList list = slotLists.computeIfAbsent(element, k -> new IntList(1));
+                // collection can contain equal elements, slot is added once
+                if (list.isEmpty() || list.last() != slot) {
+                    list.add(slot);
+                }
+            }
+        }
+        else {
+            slotLists.computeIfAbsent(value, k -> new IntList(1)).add(slot);
+        }
+    }
+
+    private static boolean containsAllSafe(Collection<?> collection, Collection<?> keys) {
+        try {
+            return collection.containsAll(keys);
+        } catch (ClassCastException | NullPointerException exception) {
+            return true;
+        }
+    }
+
+    private static boolean containsSafe(Collection<?> collection, Object key) {
+        try {
+            return collection.contains(key);
+        } catch (ClassCastException | NullPointerException exception) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ru.rdude.fxlib.panes;
+
+/**
+ * Scores how well a search key matches a query for ranked text search.
+ * Key consists of lower cased results of search functions separated by zero char, every result is scored
+ * separately and the best score is used. From best to worst: query is a prefix of the result,
+ * query starts a word, result contains query, query characters appear in the result in the same order.
+ * Within the same kind earlier and tighter matches in shorter results score higher.
+ */
+final class FuzzyScorer {
+
+    private static final char SEPARATOR = '\u0000';
+    private static final int KIND = 1_000_000;
+    private static final int PREFIX = 4;
+    private static final int WORD = 3;
+    private static final int CONTAINS = 2;
+    private static final int SUBSEQUENCE = 1;
+    private static final int MAX_PENALTY = 999;
+
+    private FuzzyScorer() {
+    }
+
+    /**
+     * @return true if characters of the query appear in one of the key parts in the same order.
+     */
+    static boolean matches(String key, String query) {
+        int start = 0;
+        while (start <= key.length()) {
+            int end = partEnd(key, start);
+            if (subsequenceEnd(key, start, end, query) >= 0) {
+                return true;
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    /**
+     * @return positive score if key matches the query, 0 otherwise.
+     */
+    static int score(String key, String query) {
+        int best = 0;
+        int start = 0;
+        while (start <= key.length()) {
+            int end = partEnd(key, start);
+            best = Math.max(best, partScore(key, start, end, query));
+            start = end + 1;
+        }
+        return best;
+    }
+
+    private static int partScore(String key, int start, int end, String query) {
+        int length = Math.min(end - start, MAX_PENALTY);
+        int index = key.indexOf(query, start);
+        if (index >= 0 && index + query.length() <= end) {
+            if (index == start) {
+                return PREFIX * KIND - length;
+            }
+            int wordStart = index;
+            while (wordStart >= 0 && wordStart + query.length() <= end
+                    && Character.isLetterOrDigit(key.charAt(wordStart - 1))) {
+                wordStart = key.indexOf(query, wordStart + 1);
+            }
+            if (wordStart >= 0 && wordStart + query.length() <= end) {
+                return WORD * KIND - Math.min(wordStart - start, MAX_PENALTY) * 1000 - length;
+            }
+            return CONTAINS * KIND - Math.min(index - start, MAX_PENALTY) * 1000 - length;
+        }
+        int first = key.indexOf(query.charAt(0), start);
+        if (first < 0 || first >= end) {
+            return 0;
+        }
+        int last = subsequenceEnd(key, first, end, query);
+        if (last < 0) {
+            return 0;
+        }
+        int gaps = last - first + 1 - query.length();
+        return SUBSEQUENCE * KIND - Math.min(gaps, MAX_PENALTY) * 1000 - length;
+    }
+
+    /**
+     * @return index of the last matched character if query is a subsequence of the key part, -1 otherwise.
+     */
+    private static int subsequenceEnd(String key, int start, int end, String query) {
+        int position = start;
+        int last = -1;
+        for (int i = 0; i < query.length(); i++) {
+            while (position < end && key.charAt(position) != query.charAt(i)) {
+                position++;
+            }
+            if (position == end) {
+                return -1;
+            }
+            last = position++;
+        }
+        return last;
+    }
+
+    private static int partEnd(String key, int start) {
+        int end = key.indexOf(SEPARATOR, start);
+        return end >= 0 ? end : key.length();
+    }
+}
@@ -0,0 +1,143 @@
+package ru.rdude.fxlib.panes;
+
+import javafx.scene.image.Image;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used icons shared by all search panes.
+ * Icons are decoded by JavaFX in the background at the requested size, so cached image weights
+ * (4 bytes per pixel) are known before loading finishes and the cache is bounded by pixel memory.
+ * Every icon counts cells waiting for it, icon that is still loading is cancelled and removed
+ * when the last waiting cell releases it.
+ * All methods must be called on JavaFX thread.
+ */
+class IconCache {
+
+    static final IconCache SHARED = new IconCache(32L * 1024 * 1024);
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Loader loader;
+    private long budget;
+    private long weight;
+
+    IconCache(long budget) {
+        this(budget, (url, width, height) -> new Image(url, width, height, true, true, true));
+    }
+
+    IconCache(long budget, Loader loader) {
+        this.budget = budget;
+        this.loader = loader;
+    }
+
+    void setBudget(long budget) {
+        if (budget < 0) {
+            throw new IllegalArgumentException("Budget must not be negative");
+        }
+        this.budget = budget;
+        trim();
+    }
+
+    long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return weight of all cached icons in bytes.
+     */
+    long getWeight() {
+        return weight;
+    }
+
+    /**
+     * Get cached icon or start loading it. Caller waits for the icon until it releases it.
+     */
+    Image acquire(String url, double width, double height) {
+        String key = key(url, width, height);
+        Entry entry = entries.get(key);
+        if (entry == null || entry.image.isError()) {
+            if (entry != null) {
+                weight -= entry.weight;
+            }
+            entry = new Entry(loader.load(url, width, height), weight(width, height));
+            // new icon is waited for before trimming, so it is not removed right after it is added
+            entry.waiting++;
+            entries.put(key, entry);
+            weight += entry.weight;
+            trim();
+            return entry.image;
+        }
+        entry.waiting++;
+        return entry.image;
+    }
+
+    /**
+     * Stop waiting for the icon. If nobody waits for it and it is still loading, loading is cancelled.
+     */
+    void release(String url, double width, double height, Image image) {
+        String key = key(url, width, height);
+        Entry entry = entries.get(key);
+        if (entry == null || entry.image != image) {
+            if (image.getProgress() < 1d) {
+                image.cancel();
+            }
+            return;
+        }
+        entry.waiting--;
+        if (entry.waiting <= 0 && image.getProgress() < 1d) {
+            image.cancel();
+            entries.remove(key);
+            weight -= entry.weight;
+        }
+        else if (entry.waiting <= 0) {
+            trim();
+        }
+    }
+
+    void clear() {
+        entries.values().removeIf(entry -> entry.waiting <= 0);
+        weight = entries.values().stream().mapToLong(entry -> entry.weight).sum();
+    }
+
+    // icons somebody waits for are never removed, they are removed on release if the cache is over the budget
+    private void trim() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (weight > budget && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.waiting <= 0) {
+                iterator.remove();
+                weight -= entry.weight;
+            }
+        }
+    }
+
+    private static String key(String url, double width, double height) {
+        return width + "x" + height + " " + url;
+    }
+
+    private static long weight(double width, double height) {
+        return Math.max(1L, (long) Math.ceil(width) * (long) Math.ceil(height) * 4);
+    }
+
+    /**
+     * Starts loading of an icon at the requested size.
+     */
+    interface Loader {
+
+        Image load(String url, double width, double height);
+    }
+
+    private static class Entry {
+
+        private final Image image;
+        private final long weight;
+        private int waiting;
+
+        Entry(Image image, long weight) {
+            this.image = image;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package ru.rdude.fxlib.panes;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Growable list of primitive ints. Used by search indexes to store row numbers without boxing.
+ * Rows are expected to be added in ascending order, so the list can be searched with binary search.
+ */
+class IntList {
+
+    private int[] values;
+    private int size;
+
+    IntList() {
+        this(4);
+    }
+
+    IntList(int capacity) {
+        values = new int[Math.max(capacity, 1)];
+    }
+
+    /**
+     * @param values initial values, array is used by the list and must not be changed.
+     */
+    IntList(int[] values) {
+        this.values = values.length > 0 ? values : new int[1];
+        this.size = values.length;
+    }
+
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int last() {
+        return values[size - 1];
+    }
+
+    boolean contains(int value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    /**
+     * @return index of the value or negative value if list does not contain it, same as Arrays.binarySearch.
+     */
+    int binarySearch(int value) {
+        return Arrays.binarySearch(values, 0, size, value);
+    }
+
+    /**
+     * @return index of the value or -1, list does not have to be sorted.
+     */
+    int indexOf(int value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Insert value shifting following values in place.
+     */
+    void insert(int index, int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        System.arraycopy(values, index, values, index + 1, size - index);
+        values[index] = value;
+        size++;
+    }
+
+    /**
+     * Remove value shifting following values in place.
+     */
+    void remove(int index) {
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+    }
+
+    /**
+     * @return true if list contains the same values as the array in the same order.
+     */
+    boolean equalsArray(int[] array) {
+        return Arrays.equals(values, 0, size, array, 0, array.length);
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    void setSize(int size) {
+        this.size = size;
+    }
+
+    void set(int index, int value) {
+        values[index] = value;
+    }
+
+    BitSet toBitSet() {
+        BitSet bitSet = new BitSet();
+        for (int i = 0; i < size; i++) {
+            bitSet.set(values[i]);
+        }
+        return bitSet;
+    }
+}
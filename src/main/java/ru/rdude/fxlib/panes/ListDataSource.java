@@ -0,0 +1,50 @@
+package ru.rdude.fxlib.panes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In memory data source. Matching positions of the latest query are kept, so fetching pages of the same query
+ * does not test elements again. List must not be changed while it is used by search pane.
+ *
+ * @param <T> type of elements.
+ */
+public class ListDataSource<T> implements SearchPaneDataSource<T> {
+
+    private final List<T> list;
+    private SearchPaneQuery<T> lastQuery;
+    private IntList lastRows;
+
+    public ListDataSource(List<T> list) {
+        this.list = list;
+    }
+
+    @Override
+    public int count(SearchPaneQuery<T> query) {
+        return rows(query).size();
+    }
+
+    @Override
+    public List<T> fetch(SearchPaneQuery<T> query, int from, int to) {
+        IntList rows = rows(query);
+        List<T> result = new ArrayList<>(Math.max(Math.min(to, rows.size()) - from, 0));
+        for (int i = from; i < to && i < rows.size(); i++) {
+            result.add(list.get(rows.get(i)));
+        }
+        return result;
+    }
+
+    private synchronized IntList rows(SearchPaneQuery<T> query) {
+        if (query != lastQuery) {
+            IntList rows = new IntList();
+            for (int row = 0; row < list.size(); row++) {
+                if (query.test(list.get(row))) {
+                    rows.add(row);
+                }
+            }
+            lastQuery = query;
+            lastRows = rows;
+        }
+        return lastRows;
+    }
+}
@@ -0,0 +1,39 @@
+package ru.rdude.fxlib.panes;
+
+import java.util.List;
+
+/**
+ * Index over getter results of a search option. SearchPane keeps it in sync with the source list,
+ * option asks it for matching rows instead of testing every element.
+ *
+ * @param <T> type of indexed elements.
+ */
+interface OptionIndex<T> {
+
+    /**
+     * Mark index as outdated. It will be rebuilt on the next query.
+     */
+    void invalidate();
+
+    /**
+     * Index rows inserted to the source list.
+     */
+    void insert(int from, List<? extends T> added);
+
+    /**
+     * Rows removed from the source list.
+     */
+    void remove(int from, int count);
+
+    /**
+     * Rows of the source list moved.
+     *
+     * @param permutation new row of every row starting from the given one.
+     */
+    void permute(int from, int[] permutation);
+
+    /**
+     * Element at the row changed its getter result.
+     */
+    void update(int row, T t);
+}
@@ -0,0 +1,142 @@
+package ru.rdude.fxlib.panes;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+
+/**
+ * Elements of a single data source query. Only pages of elements requested by the list view are fetched,
+ * the most recently used pages are cached. Pages are fetched in background and list never waits for them:
+ * elements of a page that is not loaded yet are null, and an update change is fired when the page arrives.
+ * If prefetch is enabled, pages around requested page are fetched too.
+ * If data source returns a shorter page than expected, list is shortened to the end of that page.
+ * Every new query gets a new list.
+ *
+ * @param <T> type of elements.
+ */
+class PagedList<T> extends ObservableListBase<T> {
+
+    static final int PAGE_SIZE = 128;
+    private static final int MAX_PAGES = 32;
+    // number of pages before and after requested page that are fetched in background
+    private static final int PREFETCH_PAGES = 1;
+
+    private final SearchPaneDataSource<T> dataSource;
+    private final SearchPaneQuery<T> query;
+    private int size;
+    private final Executor fetchExecutor;
+    // runs fetched pages on JavaFX thread
+    private final Executor applyExecutor;
+    private final boolean prefetch;
+    private final Map<Integer, List<T>> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+            return size() > MAX_PAGES;
+        }
+    };
+    // pages that are being fetched
+    private final Set<Integer> fetching = new HashSet<>();
+    // pages which fetch failed, they are not fetched again by this list
+    private final Set<Integer> failed = new HashSet<>();
+
+    /**
+     * @param fetchExecutor executor fetching pages.
+     * @param prefetch      true to fetch pages around requested ones.
+     */
+    PagedList(SearchPaneDataSource<T> dataSource, SearchPaneQuery<T> query, int size, Executor fetchExecutor, boolean prefetch) {
+        this(dataSource, query, size, fetchExecutor, Platform::runLater, prefetch);
+    }
+
+    PagedList(SearchPaneDataSource<T> dataSource, SearchPaneQuery<T> query, int size, Executor fetchExecutor,
+              Executor applyExecutor, boolean prefetch) {
+        this.dataSource = dataSource;
+        this.query = query;
+        this.size = size;
+        this.fetchExecutor = fetchExecutor;
+        this.applyExecutor = applyExecutor;
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * @return element at the index or null if its page is not loaded yet.
+     */
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        int page = index / PAGE_SIZE;
+        List<T> elements = pages.get(page);
+        if (elements == null) {
+            request(page);
+        }
+        if (prefetch) {
+            for (int near = page - PREFETCH_PAGES; near <= page + PREFETCH_PAGES; near++) {
+                if (near != page && near >= 0 && near * PAGE_SIZE < size && !pages.containsKey(near)) {
+                    request(near);
+                }
+            }
+        }
+        int position = index - page * PAGE_SIZE;
+        return elements != null && position < elements.size() ? elements.get(position) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void request(int page) {
+        if (failed.contains(page) || !fetching.add(page)) {
+            return;
+        }
+        int from = page * PAGE_SIZE;
+        int to = Math.min(from + PAGE_SIZE, size);
+        fetchExecutor.execute(() -> {
+            try {
+                List<T> elements = dataSource.fetch(query, from, to);
+                applyExecutor.execute(() -> loaded(page, elements));
+            } catch (RuntimeException exception) {
+                applyExecutor.execute(() -> {
+                    fetching.remove(page);
+                    failed.add(page);
+                    throw exception;
+                });
+            }
+        });
+    }
+
+    private void loaded(int page, List<T> elements) {
+        fetching.remove(page);
+        int from = page * PAGE_SIZE;
+        // list was shortened while page was fetched
+        if (from >= size) {
+            return;
+        }
+        int expected = Math.min(from + PAGE_SIZE, size) - from;
+        pages.put(page, elements);
+        beginChange();
+        for (int i = 0; i < Math.min(elements.size(), expected); i++) {
+            nextUpdate(from + i);
+        }
+        if (elements.size() < expected) {
+            // data source changed after counting, there are no elements after the end of this page
+            shorten(from + elements.size());
+        }
+        endChange();
+    }
+
+    private void shorten(int newSize) {
+        List<T> removed = new ArrayList<>(size - newSize);
+        for (int index = newSize; index < size; index++) {
+            List<T> elements = pages.get(index / PAGE_SIZE);
+            int position = index % PAGE_SIZE;
+            removed.add(elements != null && position < elements.size() ? elements.get(position) : null);
+        }
+        pages.keySet().removeIf(page -> page * PAGE_SIZE >= newSize);
+        size = newSize;
+        nextRemove(newSize, removed);
+    }
+}
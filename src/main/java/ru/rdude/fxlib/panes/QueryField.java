@@ -0,0 +1,39 @@
+package ru.rdude.fxlib.panes;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Field of the search query registered with SearchPane.addQueryField.
+ * Query terms with the field name are tested against getter results. Indexed field keeps an equality index
+ * of getter results (collections are expanded, so every element is a value) for field:text and field=value terms
+ * and a range index of number results for comparisons. Indexes are built on the first query that needs them.
+ *
+ * @param <T> type of elements.
+ */
+class QueryField<T> {
+
+    final String name;
+    final Function<T, ?> getter;
+    // null if field is not indexed
+    final EqualityIndex<T> values;
+    final RangeIndex<T> numbers;
+
+    QueryField(String name, Function<T, ?> getter, boolean indexed) {
+        this.name = name;
+        this.getter = getter;
+        this.values = indexed ? new EqualityIndex<>(getter, true) : null;
+        this.numbers = indexed ? new RangeIndex<>(getter) : null;
+    }
+
+    boolean isIndexed() {
+        return values != null;
+    }
+
+    /**
+     * @return indexes of the field kept in sync with the collection, empty if field is not indexed.
+     */
+    List<OptionIndex<T>> indexes() {
+        return isIndexed() ? List.of(values, numbers) : List.of();
+    }
+}
@@ -0,0 +1,189 @@
+package ru.rdude.fxlib.panes;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Sorted index of numeric getter results. Values are kept in a sorted double array with slot of every value
+ * in a parallel int array, so rows with values in range are found with two binary searches.
+ * Rows with null (or NaN) values are kept separately and match any range, same as null values in other search options.
+ * Inserted rows get new slots, are sorted and merged into the index. When value of a single row changes, row is
+ * marked as stale and checked separately, index is rebuilt when too many rows are stale or removed.
+ *
+ * @param <T> type of indexed elements.
+ */
+class RangeIndex<T> extends SlotIndex<T> {
+
+    private final Function<T, ?> getter;
+    private double[] values = new double[0];
+    private int[] valueSlots = new int[0];
+    // value of every slot, NaN for null values
+    private double[] slotValues = new double[0];
+    private int size;
+    private final BitSet nullSlots = new BitSet();
+
+    RangeIndex(Function<T, ?> getter) {
+        this.getter = getter;
+    }
+
+    @Override
+    void addSlots(int first, List<? extends T> added) {
+        double[] addedValues = new double[added.size()];
+        int[] addedSlots = new int[added.size()];
+        int count = 0;
+        ensureSlotCapacity(first + added.size());
+        size = first;
+        for (T t : added) {
+            double value = value(t);
+            slotValues[size] = value;
+            if (Double.isNaN(value)) {
+                nullSlots.set(size);
+            }
+            else {
+                addedValues[count] = value;
+                addedSlots[count++] = size;
+            }
+            size++;
+        }
+        addedValues = Arrays.copyOf(addedValues, count);
+        addedSlots = Arrays.copyOf(addedSlots, count);
+        sort(addedValues, addedSlots);
+        merge(addedValues, addedSlots);
+    }
+
+    @Override
+    void updateSlot(int slot, T t) {
+        double value = value(t);
+        slotValues[slot] = value;
+        nullSlots.set(slot, Double.isNaN(value));
+    }
+
+    @Override
+    void clear() {
+        values = new double[0];
+        valueSlots = new int[0];
+        slotValues = new double[0];
+        size = 0;
+        nullSlots.clear();
+    }
+
+    /**
+     * Find rows which values are in range. Bounds are inclusive.
+     *
+     * @param source source list this index is built on.
+     * @param min    lower bound or negative infinity.
+     * @param max    upper bound or positive infinity.
+     * @return set of matching rows.
+     */
+    BitSet rows(List<? extends T> source, double min, double max) {
+        ensureBuilt(source);
+        BitSet result = new BitSet(size);
+        int to = upperBound(values, max);
+        for (int i = lowerBound(values, min); i < to; i++) {
+            result.set(valueSlots[i]);
+        }
+        result.or(nullSlots);
+        for (int slot = stale.nextSetBit(0); slot >= 0; slot = stale.nextSetBit(slot + 1)) {
+            double value = slotValues[slot];
+            result.set(slot, Double.isNaN(value) || (value >= min && value <= max));
+        }
+        return slots.toRows(result);
+    }
+
+    /**
+     * @param source source list this index is built on.
+     * @return set of rows which value is null, NaN or not a number.
+     */
+    BitSet nullRows(List<? extends T> source) {
+        ensureBuilt(source);
+        return slots.toRows((BitSet) nullSlots.clone());
+    }
+
+    private double value(T t) {
+        Object value = SearchMatchers.unwrap(getter.apply(t));
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+
+    private void ensureSlotCapacity(int capacity) {
+        if (slotValues.length < capacity) {
+            slotValues = Arrays.copyOf(slotValues, Math.max(capacity, slotValues.length * 2));
+        }
+    }
+
+    private void merge(double[] addedValues, int[] addedSlots) {
+        if (addedValues.length == 0) {
+            return;
+        }
+        double[] mergedValues = new double[values.length + addedValues.length];
+        int[] mergedSlots = new int[mergedValues.length];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < mergedValues.length; k++) {
+            // added slots have greater numbers, so for equal values they go last and slots stay in ascending order
+            if (j == addedValues.length || (i < values.length && values[i] <= addedValues[j])) {
+                mergedValues[k] = values[i];
+                mergedSlots[k] = valueSlots[i++];
+            }
+            else {
+                mergedValues[k] = addedValues[j];
+                mergedSlots[k] = addedSlots[j++];
+            }
+        }
+        values = mergedValues;
+        valueSlots = mergedSlots;
+    }
+
+    /**
+     * Sort values and rows by values without boxing. Rows with equal values keep their order.
+     */
+    private static void sort(double[] values, int[] rows) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int[] placed = new int[sorted.length];
+        int[] sortedRows = new int[rows.length];
+        for (int i = 0; i < values.length; i++) {
+            int first = lowerBound(sorted, values[i]);
+            sortedRows[first + placed[first]++] = rows[i];
+        }
+        System.arraycopy(sorted, 0, values, 0, sorted.length);
+        System.arraycopy(sortedRows, 0, rows, 0, sortedRows.length);
+    }
+
+    /**
+     * @return index of the first value that is not less than the key.
+     */
+    private static int lowerBound(double[] values, double key) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] < key) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return index of the first value that is greater than the key.
+     */
+    private static int upperBound(double[] values, double key) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] <= key) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
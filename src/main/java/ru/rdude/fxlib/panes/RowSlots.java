@@ -0,0 +1,147 @@
+package ru.rdude.fxlib.panes;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Mapping between rows of the source list and slots of an index. Index stores data by slot.
+ * Slots are equal to rows until rows are removed, inserted not at the end or permuted: removed rows leave
+ * dead slots, inserted rows get new slots after all existing ones and permutation only changes the mapping.
+ * So index data of other rows is never moved or recomputed, and slots of the index data stay in ascending
+ * order of insertion.
+ */
+class RowSlots {
+
+    // row of every slot, -1 for dead slots, null while slots are equal to rows
+    private int[] slotRows;
+    // slot of every row, null while slots are equal to rows
+    private int[] rowSlots;
+    private int rows;
+    private int slots;
+    private int dead;
+
+    void reset() {
+        slotRows = null;
+        rowSlots = null;
+        rows = 0;
+        slots = 0;
+        dead = 0;
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    int slots() {
+        return slots;
+    }
+
+    int dead() {
+        return dead;
+    }
+
+    int slot(int row) {
+        return rowSlots != null ? rowSlots[row] : row;
+    }
+
+    /**
+     * Insert rows to the list.
+     *
+     * @return slot of the first inserted row, slots of the next rows follow it.
+     */
+    int insert(int from, int count) {
+        int first = slots;
+        if (rowSlots == null && from == rows) {
+            rows += count;
+            slots += count;
+            return first;
+        }
+        split(rows + count, slots + count);
+        System.arraycopy(rowSlots, from, rowSlots, from + count, rows - from);
+        for (int i = 0; i < count; i++) {
+            rowSlots[from + i] = first + i;
+        }
+        rows += count;
+        slots += count;
+        for (int row = from; row < rows; row++) {
+            slotRows[rowSlots[row]] = row;
+        }
+        return first;
+    }
+
+    void remove(int from, int count) {
+        split(rows, slots);
+        for (int row = from; row < from + count; row++) {
+            slotRows[rowSlots[row]] = -1;
+        }
+        System.arraycopy(rowSlots, from + count, rowSlots, from, rows - from - count);
+        rows -= count;
+        dead += count;
+        for (int row = from; row < rows; row++) {
+            slotRows[rowSlots[row]] = row;
+        }
+    }
+
+    /**
+     * @param permutation new row of every row starting from the given one.
+     */
+    void permute(int from, int[] permutation) {
+        split(rows, slots);
+        int[] moved = Arrays.copyOfRange(rowSlots, from, from + permutation.length);
+        for (int i = 0; i < permutation.length; i++) {
+            rowSlots[permutation[i]] = moved[i];
+            slotRows[moved[i]] = permutation[i];
+        }
+    }
+
+    /**
+     * @return rows of the slots, dead slots are skipped. Same set if slots are equal to rows.
+     */
+    BitSet toRows(BitSet slotSet) {
+        if (slotRows == null) {
+            return slotSet;
+        }
+        BitSet rowSet = new BitSet(rows);
+        for (int slot = slotSet.nextSetBit(0); slot >= 0 && slot < slots; slot = slotSet.nextSetBit(slot + 1)) {
+            if (slotRows[slot] >= 0) {
+                rowSet.set(slotRows[slot]);
+            }
+        }
+        return rowSet;
+    }
+
+    /**
+     * @return slots of the rows. Same set if slots are equal to rows.
+     */
+    BitSet toSlots(BitSet rowSet) {
+        if (rowSlots == null) {
+            return rowSet;
+        }
+        BitSet slotSet = new BitSet(slots);
+        for (int row = rowSet.nextSetBit(0); row >= 0 && row < rows; row = rowSet.nextSetBit(row + 1)) {
+            slotSet.set(rowSlots[row]);
+        }
+        return slotSet;
+    }
+
+    /**
+     * Stop treating slots as rows, growing mapping arrays to the given capacity.
+     */
+    private void split(int rowCapacity, int slotCapacity) {
+        if (rowSlots == null) {
+            rowSlots = new int[Math.max(rowCapacity, 16)];
+            slotRows = new int[Math.max(slotCapacity, 16)];
+            for (int i = 0; i < rows; i++) {
+                rowSlots[i] = i;
+                slotRows[i] = i;
+            }
+            return;
+        }
+        if (rowSlots.length < rowCapacity) {
+            rowSlots = Arrays.copyOf(rowSlots, Math.max(rowCapacity, rowSlots.length * 2));
+        }
+        if (slotRows.length < slotCapacity) {
+            slotRows = Arrays.copyOf(slotRows, Math.max(slotCapacity, slotRows.length * 2));
+        }
+    }
+}
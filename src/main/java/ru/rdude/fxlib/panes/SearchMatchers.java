@@ -0,0 +1,217 @@
+package ru.rdude.fxlib.panes;
+
+import javafx.beans.value.ObservableValue;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Predicates used by SearchPane search options.
+ * Every predicate is created from the control state when this state changes. Parsing of the control text,
+ * lower casing and collecting of the selected values happen once at creation, so testing an element
+ * only calls the getter and compares the result with already prepared values.
+ */
+final class SearchMatchers {
+
+    private static final Predicate<Object> ALWAYS = t -> true;
+
+    private SearchMatchers() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> Predicate<T> always() {
+        return (Predicate<T>) ALWAYS;
+    }
+
+    /**
+     * Matcher for TextInputControl.
+     * String values must contain the text, numbers must be equal to the parsed text, booleans must be true.
+     */
+    static <T> Predicate<T> text(Function<T, ?> getter, String text) {
+        final String controlText = text != null ? text : "";
+        final Long longValue = controlText.matches("\\d+") ? parseOrNull(controlText, Long::valueOf) : null;
+        final Integer intValue = longValue != null ? parseOrNull(controlText, Integer::valueOf) : null;
+        final Short shortValue = longValue != null ? parseOrNull(controlText, Short::valueOf) : null;
+        final Byte byteValue = longValue != null ? parseOrNull(controlText, Byte::valueOf) : null;
+        final boolean decimal = controlText.matches("\\d+(\\.\\d+)*");
+        final Double doubleValue = decimal ? parseOrNull(controlText, Double::valueOf) : null;
+        final Float floatValue = decimal ? parseOrNull(controlText, Float::valueOf) : null;
+        return t -> {
+            Object value = unwrap(getter.apply(t));
+            if (value == null) {
+                return true;
+            }
+            else if (value instanceof String) {
+                return ((String) value).contains(controlText);
+            }
+            else if (value instanceof Long) {
+                return value.equals(longValue);
+            }
+            else if (value instanceof Integer) {
+                return value.equals(intValue);
+            }
+            else if (value instanceof Short) {
+                return value.equals(shortValue);
+            }
+            else if (value instanceof Byte) {
+                return value.equals(byteValue);
+            }
+            else if (value instanceof Double) {
+                return value.equals(doubleValue);
+            }
+            else if (value instanceof Float) {
+                return value.equals(floatValue);
+            }
+            else if (value instanceof Number) {
+                return false;
+            }
+            else if (value instanceof Boolean) {
+                return (Boolean) value;
+            }
+            else {
+                return value.toString().contains(controlText);
+            }
+        };
+    }
+
+    /**
+     * Matcher for ComboBoxBase, ChoiceBox and Spinner.
+     * Value must be equal to the selected value or, if value is a collection, contain it.
+     */
+    static <T> Predicate<T> value(Function<T, ?> getter, Object selected) {
+        if (selected == null) {
+            return always();
+        }
+        return t -> {
+            Object value = unwrap(getter.apply(t));
+            if (value instanceof Collection) {
+                return ((Collection<?>) value).contains(selected);
+            }
+            else {
+                return selected.equals(value);
+            }
+        };
+    }
+
+    /**
+     * Matcher for CheckBox and RadioButton.
+     * Boolean values must be equal to the selection state, other values must be equal to the control text.
+     */
+    static <T> Predicate<T> selectable(Function<T, ?> getter, boolean selected, String text) {
+        final Boolean selectedValue = selected;
+        return t -> {
+            Object value = unwrap(getter.apply(t));
+            if (value == null) {
+                return true;
+            }
+            else if (value instanceof Boolean) {
+                return selectedValue.equals(value);
+            }
+            else {
+                return value.toString().equals(text);
+            }
+        };
+    }
+
+    /**
+     * Matcher for SelectorContainer.
+     * Collection values must contain all selected items, other values must be one of selected items.
+     */
+    static <T> Predicate<T> items(Function<T, ?> getter, Collection<?> items) {
+        final Set<Object> selected = new HashSet<>(items);
+        // up to 64 selected items are marked as found with bits of a long, so checking a collection allocates nothing
+        final Map<Object, Integer> bitPositions = new HashMap<>();
+        if (selected.size() <= Long.SIZE) {
+            for (Object item : selected) {
+                bitPositions.put(item, bitPositions.size());
+            }
+        }
+        final long allFound = selected.size() == Long.SIZE ? -1L : (1L << selected.size()) - 1;
+        return t -> {
+            Object value = unwrap(getter.apply(t));
+            if (value instanceof Collection) {
+                if (selected.isEmpty()) {
+                    return true;
+                }
+                Collection<?> collection = (Collection<?>) value;
+                try {
+                    if (collection instanceof Set || bitPositions.isEmpty()) {
+                        return collection.containsAll(selected);
+                    }
+                    long found = 0L;
+                    for (Object element : collection) {
+                        Integer position = bitPositions.get(element);
+                        if (position != null) {
+                            found |= 1L << position;
+                        }
+                    }
+                    return found == allFound;
+                }
+                catch (ClassCastException | NullPointerException exception) {
+                    return true;
+                }
+            }
+            else {
+                return selected.contains(value);
+            }
+        };
+    }
+
+    /**
+     * Matcher for range search option.
+     * Number values must be in range, bounds are inclusive. Null and not number values match any range.
+     */
+    static <T> Predicate<T> range(Function<T, ?> getter, double min, double max) {
+        if (min == Double.NEGATIVE_INFINITY && max == Double.POSITIVE_INFINITY) {
+            return always();
+        }
+        return t -> {
+            Object value = unwrap(getter.apply(t));
+            if (value instanceof Number) {
+                double number = ((Number) value).doubleValue();
+                return Double.isNaN(number) || (number >= min && number <= max);
+            }
+            return true;
+        };
+    }
+
+    /**
+     * Matcher for SelectorContainer in any tag mode.
+     * Collection values must contain at least one of selected items (any collection matches if nothing is selected),
+     * other values must be one of selected items.
+     */
+    static <T> Predicate<T> anyItems(Function<T, ?> getter, Collection<?> items) {
+        final Set<Object> selected = new HashSet<>(items);
+        return t -> {
+            Object value = unwrap(getter.apply(t));
+            if (value instanceof Collection) {
+                if (selected.isEmpty()) {
+                    return true;
+                }
+                for (Object element : (Collection<?>) value) {
+                    if (selected.contains(element)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            else {
+                return selected.contains(value);
+            }
+        };
+    }
+
+    static Object unwrap(Object value) {
+        return value instanceof ObservableValue ? ((ObservableValue<?>) value).getValue() : value;
+    }
+
+    private static <N> N parseOrNull(String text, Function<String, N> parser) {
+        try {
+            return parser.apply(text);
+        }
+        catch (NumberFormatException exception) {
+            return null;
+        }
+    }
+}
@@ -1,26 +1,47 @@
 package ru.rdude.fxlib.panes;
 
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
 import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
+import javafx.collections.ObservableMap;
 import javafx.event.EventType;
+import javafx.scene.Scene;
 import javafx.geometry.Bounds;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
+import javafx.scene.SnapshotParameters;
 import javafx.scene.control.*;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.*;
+import javafx.scene.paint.Color;
+import javafx.util.Duration;
 import ru.rdude.fxlib.containers.selector.SelectorContainer;
+import utils.DisplayNameCache;
+import utils.ElementCache;
 import utils.FunctionRawOrProperty;
+import utils.SearchKeyCache;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.*;
 import java.util.stream.Collectors;
 
@@ -59,41 +80,127 @@ import java.util.stream.Collectors;
  * <p>
  * SelectorContainer:
  * If linked function returns a Collection, checks if this collection contains all selected elements from SelectorContainer
+ * (or any of them if linked with TagMatch.ANY).
  * Else checks if return of the functions contains in selected elements of SelectorContainer
  * </p>
  * </p>
  * <p>
+ * Numeric ranges can be filtered with addRangeSearchOption method. Number of elements for every value of a control
+ * can be shown with getFacetCounts method.
+ * <p>
  * Also filtering can be set by passing custom Predicate to addSearchOptions method.
  * <p>
  * Also filtering can be set automatically with addNodeAndAutoLinkControls method by simply passing
  * a Node that contain controls, Controller for this node (may be the Node itself) and Class of the elements in ListView.
  * Controller fields names and object class getters must have the same name (ignoring "get" and "is").
  * However this method uses reflection and generates filter options based on reflection. So if performance
- * is an issue use manual linking with addSearchOptions or setSearchOptions methods.
+ * is an issue use manual linking with addSearchOptions or setSearchOptions methods, or mark the controller
+ * with AutoLinkControls annotation.
+ * <p>
+ * Search runs once before the next layout pulse, no matter how many controls or elements changed.
+ * For large or often changing collections see setIndexedTextSearch, setIndexedSearchOptions, setRankedTextSearch,
+ * setAsyncSearch, setReactiveSearch, loadElements and setDataSource methods.
  * <p>
  * Elements of the List View can have custom tooltips.
  * those tooltips can be set with setPopupFunction method or by using a popup builder.
  * Customizing tooltips with a builder is preferred way due to popups generated with setPopupFunction will
- * create new Node provided by function for tooltip every time tooltip is shown.
+ * create new Node provided by function for tooltip every time tooltip is shown, unless popup cache is enabled
+ * with setPopupCacheSize method or popups are rendered to images with setPopupSnapshots method.
  *
  * @param <T> type of elements in ListView of this SearchPane.
  */
 
 public class SearchPane<T> extends Pane {
 
+    // generated linkers by controller class, empty if controller has no generated linker
+    private static final Map<Class<?>, Optional<SearchPaneLinker<?, ?>>> LINKERS = new ConcurrentHashMap<>();
+
+    // time one chunk of loaded elements can take, so JavaFX thread still renders at about 60 frames per second
+    private static final long LOAD_CHUNK_NANOS = 8_000_000L;
+    // time mouse must stay over a cell before popups of neighbour cells are created
+    private static final Duration POPUP_PREFETCH_DELAY = Duration.millis(150);
+    // text of cells which data source elements are not loaded yet
+    private static final String LOADING_TEXT = "...";
+    private static final long DEFAULT_POPUP_SNAPSHOT_BUDGET = 64L * 1024 * 1024;
+    // number of elements taken from iterator between time checks
+    private static final int LOAD_TIME_CHECK_INTERVAL = 256;
+
+    private static final Set<EventType<?>> IGNORED_SEARCH_EVENTS = Set.of(
+            MouseEvent.MOUSE_MOVED,
+            MouseEvent.MOUSE_ENTERED,
+            MouseEvent.MOUSE_ENTERED_TARGET,
+            MouseEvent.MOUSE_EXITED,
+            MouseEvent.MOUSE_EXITED_TARGET,
+            KeyEvent.KEY_RELEASED);
+
     private HBox mainHBox;
     private VBox listVBox;
     private ListView<T> listView;
     private TextField searchTextField;
     private AnchorPane extraPane;
 
-    private FilteredList<T> filteredList;
-    private Map<Object, Predicate<T>> predicates;
+    private ObservableList<T> source;
+    private SearchResultList<T> filteredList;
+    private Map<Object, SearchOption> predicates;
     private FunctionRawOrProperty<T, String> nameFunction;
+    private final DisplayNameCache<T> nameCache = new DisplayNameCache<>(FunctionRawOrProperty.raw(Object::toString));
     private Set<FunctionRawOrProperty<T, String>> searchTextFunctions;
+    private final SearchKeyCache<T> searchKeyCache = new SearchKeyCache<>(List.of());
+    private TextSearchIndex<T> textSearchIndex;
+    private final TextQueryCache textQueryCache = new TextQueryCache();
+    // guards indexes and cached text query results, background search reads them while holding it
+    private final Object indexLock = new Object();
+    // changed with every change of the source while holding index lock
+    private long sourceVersion;
+    // elements of the source shared with background searches, appended elements are written after shared ones,
+    // other changes drop the array, so shared part never changes. Null until background search needs it
+    private Object[] sharedElements;
+    private int sharedCount;
+    private ExecutorService searchExecutor;
+    private Future<?> runningSearch;
+    // generation of the running search
+    private long runningGeneration;
+    private final AtomicLong searchGeneration = new AtomicLong();
+    private final Runnable pulseListener = this::pulse;
+    private boolean searchRequested;
+    private int searchSuspensions;
+    private List<Object> searchOptionsOrder = List.of();
+    private boolean rankedTextSearch;
+    private boolean querySearch;
+    private boolean indexedSearchOptions;
+    // registered query fields by lower cased name
+    private final Map<String, QueryField<T>> queryFields = new LinkedHashMap<>();
+    private final Map<String, SearchQuery.TermStats> queryStats = new ConcurrentHashMap<>();
+    private int rankedResultsLimit = 100;
+    private int shownRankedResults = rankedResultsLimit;
+    private int rankedResultsCount;
+    private SearchPaneDataSource<T> dataSource;
+    private Iterator<? extends T> loadingIterator;
+    private long loadingExpected;
+    private long loadingLoaded;
+    // next chunk is loaded by the pulse listener
+    private boolean chunkRequested;
+    private final ReadOnlyDoubleWrapper loadProgress = new ReadOnlyDoubleWrapper(1d);
+    private ElementWatcher<T> elementWatcher;
+    // rows of every element of the source, kept only in reactive mode, rebuilt lazily when needed after
+    // a change that is not an append
+    private Map<T, IntList> elementRows;
+    // elements removed from the source that are unwatched before the next search if they are not in the source anymore
+    private final List<T> removedWatched = new ArrayList<>();
     private CustomCellGraphic<? extends Node> customCellGraphic;
+    private int configurations;
+    private boolean cellFactoryOutdated;
+    // elements are watched again with new functions before the next pulse or search
+    private boolean watchedFunctionsOutdated;
     private Function<T, Node> popupFunction;
     private Tooltip popup; // One popup for all list view cells for better performance
+    private final ElementCache<T, Node> popupCache = new ElementCache<>(node -> 1L);
+    private final ElementCache<T, Image> popupSnapshots = new ElementCache<>(
+            image -> (long) image.getWidth() * (long) image.getHeight() * 4L);
+    private PauseTransition popupPrefetch;
+    private ImageView popupImageView;
+    // scene popups are rendered in to apply CSS and layout before snapshot
+    private Scene popupSnapshotScene;
     private PopupBuilder popupBuilder;
     private PopupNodeHolder popupNodeHolder;
     // creating this context menu to all elements instead of creating one for every element
@@ -106,23 +213,22 @@ public class SearchPane<T> extends Pane {
 
     public SearchPane(Collection<T> collection) {
         super();
-        if (collection instanceof ObservableList) {
-            filteredList = new FilteredList<>((ObservableList<T>) collection);
-        } else {
-            filteredList = new FilteredList<>(FXCollections.observableList(new ArrayList<>(collection)));
-        }
-        listView = new ListView<>(filteredList);
-        predicates = new HashMap<>();
+        predicates = new LinkedHashMap<>();
         searchTextField = new TextField();
         searchTextFunctions = new HashSet<>();
+        listView = new ListView<>();
+        setCollection(collection);
         extraPane = new AnchorPane();
         searchTextFunctions.add(FunctionRawOrProperty.raw(Object::toString));
+        searchKeyCache.setFunctions(searchTextFunctions);
+        searchKeyCache.setInvalidationListener(this::searchKeyInvalidated);
         listVBox = new VBox(searchTextField, listView);
         VBox.setVgrow(listView, Priority.ALWAYS);
         listVBox.setSpacing(5d);
         mainHBox = new HBox(listVBox, extraPane);
         getChildren().add(mainHBox);
         initTextSearch();
+        initSearchScheduler();
     }
 
     @SafeVarargs
@@ -138,10 +244,19 @@ public class SearchPane<T> extends Pane {
         setTextFieldSearchByProperty(set);
     }
 
+    /**
+     * Set text field search functions returning observable values. Lower cased results of text field search
+     * functions are cached per element until the element is removed or, for these functions, until the value changes.
+     * Value change also drops cached query results, in reactive search mode only results of the changed element
+     * are updated.
+     *
+     * @param functions text field search functions.
+     */
     public void setTextFieldSearchByProperty(Collection<Function<T, ObservableValue<String>>> functions) {
         searchTextFunctions = functions.stream()
                 .map(FunctionRawOrProperty::property)
                 .collect(Collectors.toSet());
+        textSearchFunctionsChanged();
     }
 
     @SafeVarargs
@@ -161,6 +276,363 @@ public class SearchPane<T> extends Pane {
         searchTextFunctions = functions.stream()
                 .map(FunctionRawOrProperty::raw)
                 .collect(Collectors.toSet());
+        textSearchFunctionsChanged();
+    }
+
+    private void textSearchFunctionsChanged() {
+        searchKeyCache.setFunctions(searchTextFunctions);
+        synchronized (indexLock) {
+            textQueryCache.clear();
+            if (textSearchIndex != null) {
+                textSearchIndex.invalidate();
+            }
+        }
+        watchedFunctionsChanged();
+    }
+
+    /**
+     * Enable or disable indexed text field search.
+     * When enabled, trigram index is built over lower cased results of text field search functions
+     * and kept in sync with the collection. Typing in the search text field then checks only elements
+     * returned by the index instead of every element of the collection.
+     * Results of the recent text queries are cached, so typing one more character checks only previous matches.
+     * Note: if elements change in a way that changes search functions results, index will not notice it
+     * until collection itself is changed or search functions are set again, unless reactive search is enabled.
+     *
+     * @param value true to enable indexed search.
+     */
+    public void setIndexedTextSearch(boolean value) {
+        if (value == isIndexedTextSearch()) {
+            return;
+        }
+        textSearchIndex = value ? new TextSearchIndex<>(searchKeyCache::get) : null;
+        requestSearch();
+    }
+
+    public boolean isIndexedTextSearch() {
+        return textSearchIndex != null;
+    }
+
+    /**
+     * Enable or disable indexes of search options linked to ComboBox, ChoiceBox, CheckBox, RadioButton,
+     * SelectorContainer and of range search options.
+     * When enabled, function results are indexed once and kept in sync with the collection, so changing control
+     * state finds matching elements without testing every element.
+     * Note: index does not notice changes of function results unless collection itself changes, so enable it only
+     * if results do not change or change through observable values in reactive search mode. Functions returning
+     * observable values are not indexed outside reactive search mode.
+     *
+     * @param value true to enable search option indexes.
+     */
+    public void setIndexedSearchOptions(boolean value) {
+        if (value == indexedSearchOptions) {
+            return;
+        }
+        indexedSearchOptions = value;
+        predicates.values().forEach(SearchOption::clearRows);
+        requestSearch();
+    }
+
+    public boolean isIndexedSearchOptions() {
+        return indexedSearchOptions;
+    }
+
+    /**
+     * Enable or disable query syntax in the search text field. Query example:
+     * <pre>name:sword tier&gt;=3 tag:fire -broken</pre>
+     * Words are searched in the text field search functions results. Terms field:text (result contains text),
+     * field=value (result is equal to value), field&gt;n, field&gt;=n, field&lt;n and field&lt;=n are tested against
+     * fields registered with addQueryField, numbers are compared as numbers. Collection results match if any element
+     * matches. Terms are combined with AND (can be omitted), OR and NOT (or leading minus), parentheses group terms,
+     * quotes keep spaces: name:"fire sword". Words and values are case insensitive, keywords must be upper cased.
+     * Terms that have indexes (indexed text search, indexed query fields) are resolved without testing elements,
+     * other terms test only elements left by previous terms, most selective terms go first.
+     * Ranked text search is not used while query search is enabled. Query search does not apply to data sources.
+     *
+     * @param value true to parse search text field as a query.
+     */
+    public void setQuerySearch(boolean value) {
+        querySearch = value;
+        requestSearch();
+    }
+
+    public boolean isQuerySearch() {
+        return querySearch;
+    }
+
+    /**
+     * Register a field that can be used in the search query, see setQuerySearch.
+     * Comparison terms (field&gt;value and others) with a number value match only number results, other results
+     * never match them. Comparison terms with not a number value compare lower cased results that are not numbers
+     * as strings. Collection and null results never match comparison terms.
+     *
+     * @param name   field name, case insensitive.
+     * @param getter function returning field value, collection of values or observable value of the element.
+     */
+    public void addQueryField(String name, Function<T, ?> getter) {
+        addQueryField(name, getter, false);
+    }
+
+    /**
+     * Register a field that can be used in the search query, see setQuerySearch and
+     * {@link #addQueryField(String, Function)} for comparison rules.
+     * Indexed field keeps index of getter results in sync with the collection, so query terms with this field
+     * do not test every element. Index of field getter results that change without collection change is updated
+     * only in reactive search mode.
+     *
+     * @param name    field name, case insensitive.
+     * @param getter  function returning field value, collection of values or observable value of the element.
+     * @param indexed true to index getter results.
+     */
+    public void addQueryField(String name, Function<T, ?> getter, boolean indexed) {
+        if (name == null || getter == null) {
+            throw new NullPointerException();
+        }
+        if (!name.matches("[^\\s:=<>()\"-][^\\s:=<>()\"]*")) {
+            throw new IllegalArgumentException("Illegal query field name: " + name);
+        }
+        queryFields.put(name.toLowerCase(), new QueryField<>(name.toLowerCase(), getter, indexed));
+        watchedFunctionsChanged();
+        queryFieldsChanged();
+    }
+
+    public void removeQueryField(String name) {
+        if (queryFields.remove(name.toLowerCase()) != null) {
+            watchedFunctionsChanged();
+            queryFieldsChanged();
+        }
+    }
+
+    private void queryFieldsChanged() {
+        queryStats.clear();
+        if (querySearch) {
+            requestSearch();
+        }
+    }
+
+    /**
+     * Enable or disable asynchronous search on the default background thread.
+     * When enabled, state of the search controls is captured on the JavaFX thread and predicates are tested
+     * in background. Indexes and cached results are read in background too, while changes of the collection
+     * wait for them. Elements are shared with background search without copying, collection is copied once
+     * after changes that are not appends. Search that became outdated by newer input is cancelled and only the latest result
+     * is applied to the list view.
+     * Note: in this mode custom predicates passed to addSearchOptions method are called from the background
+     * thread, so they must not read or change scene graph.
+     *
+     * @param value true to enable asynchronous search.
+     */
+    public void setAsyncSearch(boolean value) {
+        setSearchExecutor(value ? DefaultSearchExecutor.EXECUTOR : null);
+    }
+
+    /**
+     * Stop filtering the list until resumeSearch is called. Calls can be nested.
+     * Changes of search controls and of the collection do not filter the list immediately anyway, search is
+     * requested and runs once before the next layout pulse. Suspending is useful to change several search controls
+     * from code outside of one pulse and filter the list only once.
+     */
+    public void suspendSearch() {
+        searchSuspensions++;
+    }
+
+    /**
+     * Resume filtering suspended with suspendSearch method. If any search control changed
+     * while search was suspended, list is filtered immediately.
+     */
+    public void resumeSearch() {
+        if (searchSuspensions == 0) {
+            throw new IllegalStateException("Search is not suspended");
+        }
+        searchSuspensions--;
+        runRequestedSearch();
+    }
+
+    /**
+     * Apply several settings at once. Cell factory is replaced and list is filtered only once
+     * after configuration, instead of after every setting that changes cells or search.
+     * Calls can be nested, changes are applied when the outermost configuration ends.
+     *
+     * @param configuration code calling setters of this pane.
+     */
+    public void configure(Consumer<SearchPane<T>> configuration) {
+        configurations++;
+        suspendSearch();
+        try {
+            configuration.accept(this);
+        } finally {
+            configurations--;
+            if (configurations == 0 && cellFactoryOutdated) {
+                updateCellFactory();
+            }
+            if (configurations == 0) {
+                updateWatchedFunctions();
+            }
+            resumeSearch();
+        }
+    }
+
+    /**
+     * Order in which search options were tested during the latest search.
+     * Options are identified by linked controls or by custom predicates passed to addSearchOptions method.
+     * Options with results cached from previous searches go first, then options ordered by
+     * measured cost per element divided by the share of elements they reject,
+     * then options that were not measured yet in order they were added.
+     *
+     * @return unmodifiable list of controls and custom predicates.
+     */
+    public List<Object> getSearchOptionsOrder() {
+        return searchOptionsOrder;
+    }
+
+    /**
+     * Enable or disable reactive search.
+     * When enabled, pane listens to the observable values returned by functions set with
+     * setTextFieldSearchByProperty, setNameByProperty and by search option functions that return observable values.
+     * When such value changes, only the element it belongs to is checked again and its cell is updated,
+     * so elements that change many times per second do not cause the whole list to be filtered.
+     * Functions must return the same observable value for the same element every time.
+     * Observable values hold only weak references to the pane.
+     * Results of search options are cached per element, so when one option changes, other options are not tested
+     * again. Outside reactive mode results of options which functions return observable values are not cached,
+     * because changes of these values are not noticed.
+     *
+     * @param value true to enable reactive search.
+     */
+    public void setReactiveSearch(boolean value) {
+        if (value == isReactiveSearch()) {
+            return;
+        }
+        if (value) {
+            elementWatcher = new ElementWatcher<>(this::elementChanged);
+            watchedFunctionsChanged();
+            // cached results rely on watching from now on
+            if (configurations == 0) {
+                updateWatchedFunctions();
+            }
+        }
+        else {
+            elementWatcher.clear();
+            elementWatcher = null;
+            elementRows = null;
+            removedWatched.clear();
+        }
+    }
+
+    public boolean isReactiveSearch() {
+        return elementWatcher != null;
+    }
+
+    /**
+     * Live number of elements for every value of the control. Element is counted for a value if it passes
+     * the text field and all other search options and the control getter returns this value
+     * (or a collection containing it), so for ComboBox and ChoiceBox it is the number of elements that
+     * would be shown if this value was selected. Counts are updated once after every search.
+     * Values without elements are not in the map.
+     *
+     * @param control ComboBox, ChoiceBox, CheckBox, RadioButton or SelectorContainer linked with addSearchOption.
+     * @return observable map of values to element counts.
+     * @throws IllegalArgumentException if control is not linked or is not one of the listed controls.
+     */
+    public ObservableMap<Object, Integer> getFacetCounts(Control control) {
+        SearchOption option = predicates.get(control);
+        if (option == null || !(option.index instanceof EqualityIndex)) {
+            throw new IllegalArgumentException("Control is not linked to a search option with value index");
+        }
+        if (option.facetCounts == null) {
+            option.facetCounts = FXCollections.observableHashMap();
+            requestSearch();
+        }
+        return option.facetCounts;
+    }
+
+    /**
+     * Enable or disable ranked text search.
+     * When enabled and search text is not empty, elements which search functions results contain characters of
+     * the search text in the same order are found, scored and only the best of them are shown, ordered by score.
+     * Results starting with the text score best, then results with a word starting with the text,
+     * then results containing the text, then results containing only its characters.
+     * Number of shown elements is set with setRankedResultsLimit, more can be shown with showMoreResults.
+     * Only the best elements are kept while scoring, so the whole result is never sorted.
+     *
+     * @param value true to enable ranked search.
+     */
+    public void setRankedTextSearch(boolean value) {
+        rankedTextSearch = value;
+        shownRankedResults = rankedResultsLimit;
+        requestSearch();
+    }
+
+    public boolean isRankedTextSearch() {
+        return rankedTextSearch;
+    }
+
+    /**
+     * @param limit number of best elements shown by ranked search and added by every showMoreResults call.
+     */
+    public void setRankedResultsLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        rankedResultsLimit = limit;
+        shownRankedResults = limit;
+        requestSearch();
+    }
+
+    public int getRankedResultsLimit() {
+        return rankedResultsLimit;
+    }
+
+    /**
+     * Show next best elements of ranked search, as many as ranked results limit.
+     */
+    public void showMoreResults() {
+        if (hasMoreResults()) {
+            shownRankedResults += rankedResultsLimit;
+            requestSearch();
+        }
+    }
+
+    /**
+     * @return true if ranked search found more elements than shown.
+     */
+    public boolean hasMoreResults() {
+        return rankedResultsCount > filteredList.size();
+    }
+
+    /**
+     * Show elements of the data source instead of the collection. Elements are fetched by pages when list view
+     * needs them. Search text and search options are passed to the data source as a query every time search changes.
+     * Pages are fetched in background, cells of elements that are not loaded yet show "..." and list view items are
+     * null for them. If search is asynchronous, counting is done on the search executor and pages around shown
+     * elements are prefetched on the same executor. If data source returns fewer elements than it counted,
+     * list is shortened. Indexes, ranked search, facet counts and reactive search work only with collections.
+     *
+     * @param dataSource data source to show, null to show the collection again.
+     */
+    public void setDataSource(SearchPaneDataSource<T> dataSource) {
+        this.dataSource = dataSource;
+        if (dataSource == null) {
+            listView.setItems(filteredList);
+        }
+        requestSearch();
+    }
+
+    public SearchPaneDataSource<T> getDataSource() {
+        return dataSource;
+    }
+
+    public boolean isAsyncSearch() {
+        return searchExecutor != null;
+    }
+
+    /**
+     * Set executor to run search on. Passing null makes search synchronous.
+     *
+     * @param executor executor to test predicates on.
+     */
+    public void setSearchExecutor(ExecutorService executor) {
+        this.searchExecutor = executor;
     }
 
     public void setNameBy(Function<T, String> function) {
@@ -168,6 +640,8 @@ public class SearchPane<T> extends Pane {
             throw new NullPointerException();
         }
         nameFunction = FunctionRawOrProperty.raw(function);
+        nameCache.setFunction(nameFunction);
+        watchedFunctionsChanged();
         updateCellFactory();
     }
 
@@ -176,259 +650,298 @@ public class SearchPane<T> extends Pane {
             throw new NullPointerException();
         }
         nameFunction = FunctionRawOrProperty.property(function);
+        nameCache.setFunction(nameFunction);
+        watchedFunctionsChanged();
         updateCellFactory();
     }
 
+    /**
+     * Set number of element names kept to avoid calling name function on every cell update.
+     * Least recently shown names are removed first. Names of removed and updated elements are removed
+     * automatically, as well as names returned by property name function when property changes.
+     * Disabled by default.
+     *
+     * @param size maximum number of cached names, 0 to disable cache.
+     */
+    public void setNameCacheSize(int size) {
+        nameCache.setMaxSize(size);
+    }
+
+    public int getNameCacheSize() {
+        return nameCache.getMaxSize();
+    }
+
     public void setPopupFunction(Function<T, Node> function) {
         if (popup == null) {
             popup = new Tooltip();
         }
         popupFunction = function;
         popupNodeHolder = null;
+        invalidatePopups();
         updateCellFactory();
     }
 
-    public void addSearchOption(Control control, Function<T, ?> getter) {
-        if (control == null) {
-            throw new NullPointerException("Control must not be null");
-        }
-        Predicate<T> predicate = null;
+    /**
+     * Set number of popup nodes created by popup function that are kept for reuse. Least recently shown
+     * popups are removed first. Popups of removed and updated elements are removed automatically,
+     * if element changes in other way use invalidatePopup. Default is 0, popup is created every time it is shown.
+     * When mouse stops over a cell, popups of neighbour cells are created in advance.
+     *
+     * @param size maximum number of cached popups, 0 to disable cache.
+     */
+    public void setPopupCacheSize(int size) {
+        popupCache.setBudget(size);
+    }
 
-        // text fields
-        if (control instanceof TextInputControl) {
-            ((TextInputControl) control).textProperty().addListener((obs, o, n) -> updateSearch());
-            predicate = t -> {
-                Object value = getter.apply(t);
+    public int getPopupCacheSize() {
+        return (int) popupCache.getBudget();
+    }
 
-                if (value == null) {
-                    return true;
-                }
-                else if (value instanceof ObservableValue) {
-                    value = ((ObservableValue<?>) value).getValue();
-                    if (value == null) {
-                        return true;
-                    }
-                }
+    /**
+     * Enable or disable rendering popups to images. Popup of every element (created by popup function
+     * or by popup builder) is rendered once and the image is shown on later hovers.
+     * Suitable for heavy popups that do not change, popups with animations or controls will not work.
+     * Images of removed and updated elements are removed automatically, if element changes in other way
+     * use invalidatePopup. Images take up to 64 megabytes by default, use setPopupSnapshotBudget to change it.
+     *
+     * @param value true to render popups to images.
+     */
+    public void setPopupSnapshots(boolean value) {
+        setPopupSnapshotBudget(value ? DEFAULT_POPUP_SNAPSHOT_BUDGET : 0L);
+    }
 
+    public boolean isPopupSnapshots() {
+        return popupSnapshots.isEnabled();
+    }
 
-                if (value instanceof String) {
-                    return ((String) value).contains(((TextInputControl) control).getText());
-                }
+    /**
+     * Set memory available for popup images. Least recently shown images are removed first.
+     *
+     * @param bytes maximum number of bytes taken by cached images, 0 to disable popup images.
+     */
+    public void setPopupSnapshotBudget(long bytes) {
+        popupSnapshots.setBudget(bytes);
+    }
 
-                else if (value instanceof Number) {
-                    final String text = ((TextInputControl) control).getText();
-                    if (value instanceof Long) {
-                        if (text.matches("\\d+")) {
-                            return value.equals(Long.parseLong(text));
-                        } else {
-                            return false;
-                        }
-                    }
-                    else if (value instanceof Integer) {
-                        if (text.matches("\\d+")) {
-                            return value.equals(Integer.parseInt(text));
-                        } else {
-                            return false;
-                        }
-                    }
-                    else if (value instanceof Short) {
-                        if (text.matches("\\d+")) {
-                            return value.equals(Short.parseShort(text));
-                        }
-                        else {
-                            return false;
-                        }
-                    }
-                    else if (value instanceof Byte) {
-                        if (text.matches("\\d+")) {
-                            return value.equals(Byte.parseByte(text));
-                        }
-                        else {
-                            return false;
-                        }
-                    }
-                    else if (value instanceof Double) {
-                        if (text.matches("\\d+(\\.\\d+)*")) {
-                            return value.equals(Double.parseDouble(text));
-                        }
-                        else {
-                            return false;
-                        }
-                    }
-                    else if (value instanceof Float) {
-                        if (text.matches("\\d+(\\.\\d+)*")) {
-                            return value.equals(Float.parseFloat(text));
-                        }
-                        else {
-                            return false;
-                        }
-                    }
-                    else {
-                        return false;
-                    }
-                }
+    public long getPopupSnapshotBudget() {
+        return popupSnapshots.getBudget();
+    }
 
-                else if (value instanceof Boolean) {
-                    return (boolean) value;
-                }
+    /**
+     * Remove cached popup and popup image of the element, so it is created again next time it is shown.
+     */
+    public void invalidatePopup(T t) {
+        popupCache.invalidate(t);
+        popupSnapshots.invalidate(t);
+    }
 
-                else {
-                    return value.toString().contains(((TextInputControl) control).getText());
-                }
-            };
+    /**
+     * Remove all cached popups and popup images.
+     */
+    public void invalidatePopups() {
+        popupCache.clear();
+        popupSnapshots.clear();
+    }
+
+    public void addSearchOption(Control control, Function<T, ?> getter) {
+        if (control == null) {
+            throw new NullPointerException("Control must not be null");
+        }
+        // predicate is created from the control state every time this state changes and not on every element test
+        SearchOption option = null;
+
+        // text fields
+        if (control instanceof TextInputControl) {
+            option = new SearchOption(() -> SearchMatchers.text(getter, ((TextInputControl) control).getText()));
+            ((TextInputControl) control).textProperty().addListener(option);
         }
 
         // combo boxes
         else if (control instanceof ComboBoxBase) {
-            ((ComboBoxBase<?>) control).valueProperty().addListener((v, o, n) -> updateSearch());
-            predicate = t -> {
-                Object value = getter.apply(t);
-                if (value instanceof ObservableValue) {
-                    value = ((ObservableValue<?>) value).getValue();
-                }
-                if (((ComboBoxBase<?>) control).getValue() == null) {
-                    return true;
-                }
-                else if (value instanceof Collection) {
-                    return ((Collection<?>) value).contains(((ComboBoxBase<?>) control).getValue());
-                }
-                else {
-                    return ((ComboBoxBase<?>) control).getValue().equals(value);
-                }
-            };
+            option = new SearchOption(() -> SearchMatchers.value(getter, ((ComboBoxBase<?>) control).getValue()));
+            indexValueOption(option, getter, () -> ((ComboBoxBase<?>) control).getValue());
+            ((ComboBoxBase<?>) control).valueProperty().addListener(option);
         }
 
         // choice box
         else if (control instanceof ChoiceBox) {
-            ((ChoiceBox<?>) control).valueProperty().addListener((v, o, n) -> updateSearch());
-            predicate = t -> {
-                Object value = getter.apply(t);
-                if (value instanceof ObservableValue) {
-                    value = ((ObservableValue<?>) value).getValue();
-                }
-                if (((ChoiceBox<?>) control).getValue() == null) {
-                    return true;
-                }
-                else if (value instanceof Collection) {
-                    return ((Collection<?>) value).contains(((ChoiceBox<?>) control).getValue());
-                }
-                else {
-                    return ((ChoiceBox<?>) control).getValue().equals(value);
-                }
-            };
+            option = new SearchOption(() -> SearchMatchers.value(getter, ((ChoiceBox<?>) control).getValue()));
+            indexValueOption(option, getter, () -> ((ChoiceBox<?>) control).getValue());
+            ((ChoiceBox<?>) control).valueProperty().addListener(option);
         }
 
         // spinner
         else if (control instanceof Spinner) {
-            ((Spinner<?>) control).valueProperty().addListener((v, o, n) -> updateSearch());
-            predicate = t -> {
-                Object value = getter.apply(t);
-                if (value instanceof ObservableValue) {
-                    value = ((ObservableValue<?>) value).getValue();
-                }
-                if (((Spinner<?>) control).getValue() == null) {
-                    return true;
-                }
-                else if (value instanceof Collection) {
-                    return ((Collection<?>) value).contains(((Spinner<?>) control).getValue());
-                }
-                else {
-                    return ((Spinner<?>) control).getValue().equals(value);
-                }
-            };
+            option = new SearchOption(() -> SearchMatchers.value(getter, ((Spinner<?>) control).getValue()));
+            ((Spinner<?>) control).valueProperty().addListener(option);
         }
 
         // checkbox
         else if (control instanceof CheckBox) {
-            ((CheckBox) control).selectedProperty().addListener((v, o, n) -> updateSearch());
-            predicate = t -> {
-                Object value = getter.apply(t);
-                if (value == null) {
-                    return true;
-                }
-                else if (value instanceof ObservableValue) {
-                    value = ((ObservableValue<?>) value).getValue();
-                    if (value == null) {
-                        return true;
-                    }
-                }
-                if (value instanceof Boolean) {
-                    return (Boolean) value == ((CheckBox) control).isSelected();
-                }
-                else {
-                    return value.toString().equals(((CheckBox) control).getText());
-                }
-            };
+            option = new SearchOption(() -> SearchMatchers.selectable(getter, ((CheckBox) control).isSelected(), ((CheckBox) control).getText()));
+            indexSelectableOption(option, getter, () -> true, () -> ((CheckBox) control).isSelected(), ((CheckBox) control)::getText);
+            ((CheckBox) control).selectedProperty().addListener(option);
         }
 
         // radio button
         else if (control instanceof RadioButton) {
-            ((RadioButton) control).selectedProperty().addListener((v, o, n) -> updateSearch());
-            predicate = t -> {
-                if (!((RadioButton) control).isSelected()) {
-                    return true;
-                }
-                else {
-                    Object value = getter.apply(t);
-                    if (value == null) {
-                        return true;
-                    }
-                    else if (value instanceof ObservableValue) {
-                        value = ((ObservableValue<?>) value).getValue();
-                        if (value == null) {
-                            return true;
-                        }
-                    }
-                    if (value instanceof Boolean) {
-                        return ((Boolean) value) == ((RadioButton) control).isSelected();
-                    }
-                    else {
-                        return value.toString().equals(((RadioButton) control).getText());
-                    }
-                }
-            };
+            option = new SearchOption(() -> ((RadioButton) control).isSelected()
+                    ? SearchMatchers.selectable(getter, true, ((RadioButton) control).getText())
+                    : SearchMatchers.always());
+            indexSelectableOption(option, getter, ((RadioButton) control)::isSelected, () -> true, ((RadioButton) control)::getText);
+            ((RadioButton) control).selectedProperty().addListener(option);
         }
 
         // selector container
         else if (control instanceof SelectorContainer) {
-            ((SelectorContainer<?, ?>) control).getItems().addListener((ListChangeListener<Object>) change -> {
-                if (change.next()) {
-                    updateSearch();
-                }
-            });
-            predicate = t -> {
-                Object value = getter.apply(t);
-                if (value instanceof ObservableValue) {
-                    value = ((ObservableValue<?>) value).getValue();
-                }
-                if (value instanceof Collection) {
-                    if (((SelectorContainer<?, ?>) control).getItems().isEmpty()) {
-                        return true;
-                    }
-                    else {
-                        try {
-                            return ((Collection<?>) value).containsAll(((SelectorContainer<?, ?>) control).getItems());
-                        }
-                        catch (ClassCastException | NullPointerException exception) {
-                            return true;
-                        }
-                    }
-                }
-                else {
-                    return ((SelectorContainer<?, ?>) control).getItems().contains(value);
-                }
-            };
+            addSearchOption((SelectorContainer<?, ?>) control, getter, TagMatch.ALL);
+            return;
         }
 
-        if (predicate != null) {
-            predicates.put(control, predicate);
+        if (option != null) {
+            option.key = control;
+            option.getter = getter;
+            predicates.put(control, option);
+            watchedFunctionsChanged();
+            requestSearch();
         }
     }
 
     /**
-     * Link controls to T methods.
-     * Controls can only be be instances of: TextInputControl, ComboBoxBase, ChoiceBox,
-     * CheckBox, RadioButton, Spinner.
+     * Link SelectorContainer to a function returning a collection of tags.
+     * If search options are indexed (see setIndexedSearchOptions), tags of all elements are indexed, so elements
+     * are found by intersecting (or joining for ANY match) rows of selected tags instead of checking collection
+     * of every element.
+     * If function returns not a collection, its result must be one of selected items.
+     *
+     * @param control selector container with selected tags.
+     * @param getter  function returning a collection.
+     * @param match   whether element must have all selected tags or any of them.
+     */
+    public void addSearchOption(SelectorContainer<?, ?> control, Function<T, ?> getter, TagMatch match) {
+        if (control == null) {
+            throw new NullPointerException("Control must not be null");
+        }
+        ObservableList<?> items = control.getItems();
+        SearchOption option = new SearchOption(() -> match == TagMatch.ANY
+                ? SearchMatchers.anyItems(getter, items)
+                : SearchMatchers.items(getter, items));
+        EqualityIndex<T> index = new EqualityIndex<>(getter, true);
+        option.index = index;
+        option.indexQuery = () -> {
+            List<?> selected = new ArrayList<>(items);
+            return elements -> match == TagMatch.ANY ? index.any(elements, selected) : index.all(elements, selected);
+        };
+        items.addListener(option);
+        option.key = control;
+        option.getter = getter;
+        predicates.put(control, option);
+        watchedFunctionsChanged();
+        requestSearch();
+    }
+
+    /**
+     * Index option which elements must be equal to the selected value or contain it.
+     */
+    private void indexValueOption(SearchOption option, Function<T, ?> getter, Supplier<Object> selected) {
+        EqualityIndex<T> index = new EqualityIndex<>(getter, true);
+        option.index = index;
+        option.indexQuery = () -> {
+            Object value = selected.get();
+            return elements -> value != null ? index.rows(elements, value) : allRows(elements.size());
+        };
+    }
+
+    /**
+     * Index option which boolean values must be equal to selection state and other values must be equal to text.
+     */
+    private void indexSelectableOption(SearchOption option, Function<T, ?> getter, BooleanSupplier filtering,
+                                       BooleanSupplier selected, Supplier<String> text) {
+        EqualityIndex<T> index = new EqualityIndex<>(getter, false);
+        option.index = index;
+        option.indexQuery = () -> {
+            if (!filtering.getAsBoolean()) {
+                return elements -> allRows(elements.size());
+            }
+            Boolean selectedValue = selected.getAsBoolean();
+            String controlText = text.get();
+            return elements -> index.matching(elements, value -> value instanceof Boolean
+                    ? selectedValue.equals(value)
+                    : value.toString().equals(controlText));
+        };
+    }
+
+    private static BitSet allRows(int size) {
+        BitSet rows = new BitSet(size);
+        rows.set(0, size);
+        return rows;
+    }
+
+    /**
+     * Link a pair of controls to a function returning a number. Elements with function result in range
+     * between values of the controls (inclusive) pass. Elements with null result pass any range.
+     * If search options are indexed (see setIndexedSearchOptions), results of the function are indexed,
+     * so when bounds change matching elements are found without testing every element.
+     *
+     * @param min    Spinner or TextInputControl with lower bound. Null, empty or not a number means no lower bound.
+     * @param max    Spinner or TextInputControl with upper bound. Null, empty or not a number means no upper bound.
+     * @param getter function returning a number or an observable value of a number.
+     * @throws IllegalArgumentException if control is not a Spinner or a TextInputControl.
+     */
+    public void addRangeSearchOption(Control min, Control max, Function<T, ?> getter) {
+        if (min == null && max == null) {
+            throw new NullPointerException("At least one control must not be null");
+        }
+        for (Control control : Arrays.asList(min, max)) {
+            if (control != null && !(control instanceof Spinner) && !(control instanceof TextInputControl)) {
+                throw new IllegalArgumentException("Range bound must be a Spinner or a TextInputControl");
+            }
+        }
+        RangeIndex<T> index = new RangeIndex<>(getter);
+        SearchOption option = new SearchOption(() -> SearchMatchers.range(getter,
+                rangeBound(min, Double.NEGATIVE_INFINITY), rangeBound(max, Double.POSITIVE_INFINITY)));
+        option.index = index;
+        option.indexQuery = () -> {
+            double from = rangeBound(min, Double.NEGATIVE_INFINITY);
+            double to = rangeBound(max, Double.POSITIVE_INFINITY);
+            return elements -> index.rows(elements, from, to);
+        };
+        option.key = min != null ? min : max;
+        option.getter = getter;
+        for (Control control : Arrays.asList(min, max)) {
+            if (control instanceof Spinner) {
+                ((Spinner<?>) control).valueProperty().addListener(option);
+            }
+            else if (control instanceof TextInputControl) {
+                ((TextInputControl) control).textProperty().addListener(option);
+            }
+        }
+        predicates.put(option.key, option);
+        watchedFunctionsChanged();
+        requestSearch();
+    }
+
+    private static double rangeBound(Control control, double unbounded) {
+        Object value = null;
+        if (control instanceof Spinner) {
+            value = ((Spinner<?>) control).getValue();
+        }
+        else if (control instanceof TextInputControl) {
+            try {
+                String text = ((TextInputControl) control).getText();
+                value = text != null ? Double.valueOf(text.trim()) : null;
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return value instanceof Number && !Double.isNaN(((Number) value).doubleValue())
+                ? ((Number) value).doubleValue()
+                : unbounded;
+    }
+
+    /**
+     * Link controls to T methods.
+     * Controls can only be be instances of: TextInputControl, ComboBoxBase, ChoiceBox,
+     * CheckBox, RadioButton, Spinner.
      *
      * @param functionMap this map link controls with T object functions.
      * @throws IllegalArgumentException if control is not instance of TextInputControl, ComboBoxBase, ChoiceBox,
@@ -439,73 +952,269 @@ public class SearchPane<T> extends Pane {
     }
 
     public void setSearchOptions(Map<Control, Function<T, ?>> functionMap) {
-        this.predicates = new HashMap<>();
+        this.predicates = new LinkedHashMap<>();
         addSearchOptions(functionMap);
+        watchedFunctionsChanged();
+        requestSearch();
     }
 
     /**
      * Add custom predicate to search. List view will be updated every time action on controls set is handled.
+     * Mouse movement and key release events are ignored as they do not change controls state.
      *
      * @param customNodePredicate list view will be filtered based on this predicate.
      * @param controls            list view will be filtered every time event on any of this controls is handled.
      */
     public void addSearchOptions(Set<Control> controls, Predicate<T> customNodePredicate) {
-        predicates.put(new Object(), customNodePredicate);
-        controls.forEach(control -> control.addEventHandler(EventType.ROOT, (event) -> updateSearch()));
+        SearchOption option = new SearchOption(() -> customNodePredicate);
+        option.key = customNodePredicate;
+        predicates.put(new Object(), option);
+        controls.forEach(control -> control.addEventHandler(EventType.ROOT, event -> {
+            if (!IGNORED_SEARCH_EVENTS.contains(event.getEventType())) {
+                option.update();
+            }
+        }));
+        requestSearch();
     }
 
     /**
      * Add node close to the list view. Try to link child controls to T getter functions.
      * Getter method names of the objects in search pane must be same as controller field names ("get" and "is" are ignored).
      * Note: this method use reflection and force filtering use reflection as well. So if performance is an issue use
-     * addSearchOptions method to link controls with methods manually.
+     * addSearchOptions method to link controls with methods manually or mark controller class with AutoLinkControls
+     * annotation. If linker generated from this annotation is found, it is used and no reflection is involved.
      *
      * @param node        node to add.
      * @param controller  node controller.
      * @param objectClass class of the collection object.
      */
+    @SuppressWarnings("unchecked")
     public <C> void addNodeAndAutoLinkControls(Node node, C controller, Class<T> objectClass) {
         extraPane.getChildren().add(node);
-        Map<Control, Function<T, ?>> functionMap = new HashMap<>();
-        Set<Field> controllerFields = new HashSet<>();
+        SearchPaneLinker<?, ?> linker = LINKERS.computeIfAbsent(controller.getClass(), SearchPane::findLinker).orElse(null);
+        if (linker != null && linker.elementClass() == objectClass) {
+            ((SearchPaneLinker<C, T>) linker).link(controller).forEach((control, getter) -> {
+                if (control != null) {
+                    addSearchOption(control, getter);
+                }
+            });
+            return;
+        }
+        reflectiveLinks(controller, objectClass).forEach((key, value) -> {
+            try {
+                addSearchOption(key, value);
+            } catch (IllegalArgumentException ignore) {
+            }
+        });
+    }
+
+    /**
+     * Link controller fields to the element getters with reflection. Fields and getters are matched by the same
+     * rules as in the linker generated by AutoLinkControlsProcessor: not private fields declared by the controller
+     * class which type is a Control, and not static methods declared by the element class without parameters
+     * that return a value and are public or, if element class is in the controller package, not private.
+     *
+     * @return controls linked to the getters, null controls are not linked.
+     */
+    static <T> Map<Control, Function<T, ?>> reflectiveLinks(Object controller, Class<T> objectClass) {
+        Map<String, Field> controllerFields = new HashMap<>();
         for (Field declaredField : controller.getClass().getDeclaredFields()) {
-            if (Control.class.isAssignableFrom(declaredField.getDeclaringClass())) {
-                controllerFields.add(declaredField);
+            if (Control.class.isAssignableFrom(declaredField.getType())
+                    && !Modifier.isPrivate(declaredField.getModifiers())
+                    && declaredField.trySetAccessible()) {
+                controllerFields.put(declaredField.getName().toLowerCase(), declaredField);
             }
         }
+        boolean samePackage = objectClass.getPackageName().equals(controller.getClass().getPackageName());
+        Map<Control, Function<T, ?>> functionMap = new LinkedHashMap<>();
         for (Method declaredMethod : objectClass.getDeclaredMethods()) {
+            int modifiers = declaredMethod.getModifiers();
+            if (declaredMethod.getParameterCount() > 0
+                    || declaredMethod.getReturnType() == void.class
+                    || declaredMethod.isSynthetic()
+                    || Modifier.isStatic(modifiers)
+                    || (samePackage ? Modifier.isPrivate(modifiers) : !Modifier.isPublic(modifiers))
+                    || !declaredMethod.trySetAccessible()) {
+                continue;
+            }
             String methodName = declaredMethod.getName().toLowerCase().replaceFirst("^(get|is)", "");
-            for (Field controllerField : controllerFields) {
-                if (controllerField.getName().toLowerCase().equals(methodName)) {
+            Field controllerField = controllerFields.get(methodName);
+            if (controllerField == null) {
+                continue;
+            }
+            try {
+                Control control = (Control) controllerField.get(controller);
+                if (control == null) {
+                    continue;
+                }
+                functionMap.put(control, t -> {
                     try {
-                        functionMap.put((Control) controllerField.get(controller), t -> {
-                            try {
-                                return declaredMethod.invoke(t);
-                            } catch (IllegalAccessException | InvocationTargetException e) {
-                                e.printStackTrace();
-                            }
-                            throw new IllegalArgumentException("Can not invoke get method");
-                        });
-                    } catch (IllegalAccessException ignored) {
+                        return declaredMethod.invoke(t);
+                    } catch (IllegalAccessException | InvocationTargetException e) {
+                        e.printStackTrace();
                     }
-                }
+                    throw new IllegalArgumentException("Can not invoke get method");
+                });
+            } catch (IllegalAccessException ignored) {
             }
         }
-        functionMap.forEach((key, value) -> {
-            try {
-                addSearchOption(key, value);
-            } catch (IllegalArgumentException ignore) {
+        return functionMap;
+    }
+
+    private static Optional<SearchPaneLinker<?, ?>> findLinker(Class<?> controllerClass) {
+        try {
+            Class<?> linkerClass = Class.forName(SearchPaneLinker.linkerClassName(controllerClass), true, controllerClass.getClassLoader());
+            if (SearchPaneLinker.class.isAssignableFrom(linkerClass)) {
+                return Optional.of((SearchPaneLinker<?, ?>) linkerClass.getDeclaredConstructor().newInstance());
             }
-        });
+        } catch (ReflectiveOperationException ignored) {
+        }
+        return Optional.empty();
     }
 
     public void setCollection(Collection<T> collection) {
         if (collection instanceof ObservableList) {
-            filteredList = new FilteredList<>((ObservableList<T>) collection);
+            source = (ObservableList<T>) collection;
         } else {
-            filteredList = new FilteredList<>(FXCollections.observableList(new ArrayList<>(collection)));
+            source = FXCollections.observableList(new ArrayList<>(collection));
         }
+        if (filteredList != null) {
+            filteredList.dispose();
+        }
+        filteredList = new SearchResultList<T>(source, this::sourceChanged);
+        searchKeyCache.clear();
+        synchronized (indexLock) {
+            sourceVersion++;
+            textQueryCache.clear();
+            indexes().forEach(OptionIndex::invalidate);
+        }
+        sharedElements = null;
+        predicates.values().forEach(SearchOption::clearRows);
+        watchedFunctionsChanged();
         listView.setItems(filteredList);
+        updateSearch();
+    }
+
+    /**
+     * Append elements of the iterator to the collection in chunks. Every chunk takes a few milliseconds of JavaFX thread,
+     * next chunk is appended on the next pulse, so list view stays responsive and can be searched while loading.
+     * If pane is not in a scene, chunks are appended as soon as possible.
+     * Appending keeps cached search results, so only appended elements are checked after every chunk.
+     * Loading that is in progress is cancelled. Iterator is read on JavaFX thread.
+     *
+     * @param iterator     elements to append.
+     * @param expectedSize number of elements used to compute load progress, negative if unknown.
+     */
+    public void loadElements(Iterator<? extends T> iterator, long expectedSize) {
+        loadingIterator = iterator;
+        loadingExpected = expectedSize;
+        loadingLoaded = 0;
+        loadProgress.set(expectedSize > 0 ? 0d : ProgressIndicator.INDETERMINATE_PROGRESS);
+        requestChunk();
+    }
+
+    public void loadElements(Iterator<? extends T> iterator) {
+        loadElements(iterator, -1);
+    }
+
+    /**
+     * Append elements of the spliterator in chunks. If spliterator knows its exact size, load progress is known.
+     *
+     * @param spliterator elements to append.
+     */
+    public void loadElements(Spliterator<? extends T> spliterator) {
+        loadElements(Spliterators.iterator(spliterator), spliterator.getExactSizeIfKnown());
+    }
+
+    /**
+     * Append batches returned by supplier in chunks until supplier returns null or an empty batch.
+     *
+     * @param batches supplier of the next batch of elements.
+     */
+    public void loadElements(Supplier<? extends Collection<? extends T>> batches) {
+        loadElements(new Iterator<T>() {
+            private Iterator<? extends T> batch = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (batch != null && !batch.hasNext()) {
+                    Collection<? extends T> next = batches.get();
+                    batch = next != null && !next.isEmpty() ? next.iterator() : null;
+                }
+                return batch != null;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return batch.next();
+            }
+        });
+    }
+
+    /**
+     * Stop loading elements. Already loaded elements stay in the collection.
+     */
+    public void cancelLoading() {
+        if (loadingIterator != null) {
+            loadingIterator = null;
+            loadProgress.set(1d);
+        }
+    }
+
+    public boolean isLoading() {
+        return loadingIterator != null;
+    }
+
+    /**
+     * @return progress of loading elements from 0 to 1, or ProgressIndicator.INDETERMINATE_PROGRESS
+     * if number of elements is unknown. Value is 1 when nothing is loading.
+     */
+    public ReadOnlyDoubleProperty loadProgressProperty() {
+        return loadProgress.getReadOnlyProperty();
+    }
+
+    private void loadChunk(Iterator<? extends T> iterator) {
+        // loading was cancelled or replaced
+        if (iterator == null || loadingIterator != iterator) {
+            return;
+        }
+        List<T> chunk = new ArrayList<>();
+        long start = System.nanoTime();
+        while (iterator.hasNext()) {
+            chunk.add(iterator.next());
+            if (chunk.size() % LOAD_TIME_CHECK_INTERVAL == 0 && System.nanoTime() - start > LOAD_CHUNK_NANOS) {
+                break;
+            }
+        }
+        source.addAll(chunk);
+        loadingLoaded += chunk.size();
+        if (!iterator.hasNext()) {
+            loadingIterator = null;
+            loadProgress.set(1d);
+            return;
+        }
+        if (loadingExpected > 0) {
+            loadProgress.set(Math.min((double) loadingLoaded / loadingExpected, 1d));
+        }
+        requestChunk();
+    }
+
+    /**
+     * Load next chunk on the next pulse, so every chunk is followed by layout and rendering.
+     * Platform.runLater does not guarantee a pulse between two runnables.
+     */
+    private void requestChunk() {
+        if (getScene() != null) {
+            chunkRequested = true;
+            Platform.requestNextPulse();
+        }
+        else {
+            Iterator<? extends T> iterator = loadingIterator;
+            Platform.runLater(() -> loadChunk(iterator));
+        }
     }
 
     public AnchorPane getExtraPane() {
@@ -555,81 +1264,581 @@ public class SearchPane<T> extends Pane {
             case BASELINE_CENTER:
                 listVBox.getChildren().add(listVBox.getChildren().size() - 1, extraPane);
                 break;
-            case CENTER:
-                listVBox.getChildren().add(1, extraPane);
+            case CENTER:
+                listVBox.getChildren().add(1, extraPane);
+        }
+    }
+
+    public void addContextMenuItem(String name, Consumer<T> consumer) {
+        if (elementsContextMenu == null) {
+            elementsContextMenu = new ContextMenu();
+        }
+        MenuItem menuItem = new MenuItem(name);
+        menuItem.setOnAction(event -> {
+            if (contextMenuRequester != null) {
+                consumer.accept(contextMenuRequester);
+                contextMenuRequester = null;
+            }
+        });
+        elementsContextMenu.getItems().add(menuItem);
+    }
+
+    public void addContextMenu(String name, Consumer<SearchPaneMenuItem> children) {
+        Menu menu = new Menu(name);
+        SearchPaneMenuItem searchPaneMenuItem = new SearchPaneMenuItem(new ArrayList<>());
+        children.accept(searchPaneMenuItem);
+        menu.getItems().addAll(searchPaneMenuItem.list);
+        elementsContextMenu.getItems().add(menu);
+    }
+
+    public PopupBuilder popupBuilder() {
+        if (popupBuilder == null) {
+            popupBuilder = new PopupBuilder();
+        }
+        return popupBuilder;
+    }
+
+    public void setIcon(Function<T, Image> iconFunction) {
+        setIcon(iconFunction, 25d, 25d);
+    }
+
+    public void setIcon(Function<T, Image> iconFunction, double width, double height) {
+        customCellGraphic = new CustomCellGraphic<>(
+                () -> {
+                    ImageView imageView = new ImageView();
+                    imageView.setFitWidth(width);
+                    imageView.setFitHeight(height);
+                    return imageView;
+                },
+                (t, view) -> view.setImage(iconFunction.apply(t)));
+        updateCellFactory();
+    }
+
+    public void setIconUrl(Function<T, String> urlFunction) {
+        setIconUrl(urlFunction, 25d, 25d, null);
+    }
+
+    /**
+     * Show icons loaded by url. Icons are decoded in the background at the given size, placeholder is shown
+     * until icon is loaded or if it can not be loaded. Loading of icons of cells scrolled away is cancelled.
+     * Loaded icons are kept in the cache shared by all search panes, see setIconCacheBudget.
+     *
+     * @param urlFunction function returning icon url of the element, null for no icon.
+     * @param placeholder image shown while icon is loading, can be null.
+     */
+    public void setIconUrl(Function<T, String> urlFunction, double width, double height, Image placeholder) {
+        customCellGraphic = new CustomCellGraphic<>(
+                () -> new AsyncIconView(width, height, placeholder),
+                (t, view) -> view.show(urlFunction.apply(t)));
+        updateCellFactory();
+    }
+
+    /**
+     * Set memory available for icons loaded by url in all search panes. Least recently loaded icons
+     * that are not shown are removed first. Default is 32 megabytes.
+     *
+     * @param bytes maximum number of bytes taken by cached icons (4 bytes per pixel of the requested size).
+     */
+    public static void setIconCacheBudget(long bytes) {
+        IconCache.SHARED.setBudget(bytes);
+    }
+
+    public static long getIconCacheBudget() {
+        return IconCache.SHARED.getBudget();
+    }
+
+    public <N extends Node> void setCellGraphic(Supplier<N> creator, BiConsumer<T, N> updater) {
+        customCellGraphic = new CustomCellGraphic<>(creator, updater);
+        updateCellFactory();
+    }
+
+    private void initTextSearch() {
+        // text field is not a part of predicates map, its results are cached and refined separately
+        searchTextField.textProperty().addListener((observableValue, oldV, newV) -> {
+            shownRankedResults = rankedResultsLimit;
+            requestSearch();
+        });
+    }
+
+    /**
+     * Property used by text field search changed, so cached query results may be wrong for the element.
+     */
+    private void searchKeyInvalidated(T t) {
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> searchKeyInvalidated(t));
+            return;
+        }
+        // in reactive mode element watcher updates cached results of the element rows
+        if (elementWatcher == null) {
+            synchronized (indexLock) {
+                textQueryCache.clear();
+            }
+        }
+    }
+
+    private Predicate<T> textPredicate(String lowerCaseText) {
+        return t -> searchKeyCache.get(t).contains(lowerCaseText);
+    }
+
+    private void sourceChanged(ListChangeListener.Change<? extends T> change) {
+        searchKeyCache.listChanged(change);
+        popupCache.listChanged(change);
+        popupSnapshots.listChanged(change);
+        nameCache.listChanged(change);
+        // appending to the end of collection is the only change that does not shift rows
+        boolean appended = change.next()
+                && change.wasAdded()
+                && !change.wasRemoved()
+                && change.getTo() == source.size();
+        appended = appended && !change.next();
+        if (!appended) {
+            // appended rows are just not evaluated yet, other changes make cached rows meaningless
+            predicates.values().forEach(SearchOption::clearRows);
+        }
+        change.reset();
+        synchronized (indexLock) {
+            sourceVersion++;
+            if (!appended) {
+                textQueryCache.clear();
+            }
+            updateIndexes(change, indexes());
+        }
+        shareChanged(appended);
+        if (elementWatcher != null) {
+            watchChanged(change, appended);
+        }
+        requestSearch();
+    }
+
+    private void shareChanged(boolean appended) {
+        if (!appended || sharedElements == null) {
+            sharedElements = null;
+            return;
+        }
+        int size = source.size();
+        if (sharedElements.length < size) {
+            // searches that already share the array keep the old one
+            sharedElements = Arrays.copyOf(sharedElements, Math.max(size, sharedElements.length * 2));
+        }
+        for (int row = sharedCount; row < size; row++) {
+            sharedElements[row] = source.get(row);
+        }
+        sharedCount = size;
+    }
+
+    /**
+     * @return elements of the source that are never changed, so background search can read them.
+     * Source is copied only after changes that are not appends.
+     */
+    @SuppressWarnings("unchecked")
+    private List<T> sharedSource() {
+        if (sharedElements == null) {
+            sharedElements = source.toArray();
+            sharedCount = sharedElements.length;
+        }
+        return Arrays.asList((T[]) sharedElements).subList(0, sharedCount);
+    }
+
+    /**
+     * Index kept in sync with the collection of every search option, indexed query field and text search.
+     */
+    private List<OptionIndex<T>> indexes() {
+        List<OptionIndex<T>> indexes = new ArrayList<>();
+        predicates.values().stream()
+                .filter(option -> option.index != null)
+                .forEach(option -> indexes.add(option.index));
+        queryFields.values().forEach(field -> indexes.addAll(field.indexes()));
+        if (textSearchIndex != null) {
+            indexes.add(textSearchIndex);
+        }
+        return indexes;
+    }
+
+    /**
+     * Pass collection change to the indexes. Replaced rows are updated in place, so setting an element does not
+     * shift other rows. Change is reset after this method so it can be read again.
+     */
+    private void updateIndexes(ListChangeListener.Change<? extends T> change, List<OptionIndex<T>> indexes) {
+        if (indexes.isEmpty()) {
+            return;
+        }
+        while (change.next()) {
+            int from = change.getFrom();
+            if (change.wasPermutated()) {
+                int[] permutation = new int[change.getTo() - from];
+                for (int i = 0; i < permutation.length; i++) {
+                    permutation[i] = change.getPermutation(from + i);
+                }
+                indexes.forEach(index -> index.permute(from, permutation));
+            }
+            else if (change.wasUpdated() || (change.wasReplaced() && change.getRemovedSize() == change.getAddedSize())) {
+                for (int row = from; row < change.getTo(); row++) {
+                    T t = change.getList().get(row);
+                    for (OptionIndex<T> index : indexes) {
+                        index.update(row, t);
+                    }
+                }
+            }
+            else {
+                List<? extends T> added = change.getAddedSubList();
+                for (OptionIndex<T> index : indexes) {
+                    if (change.wasRemoved()) {
+                        index.remove(from, change.getRemovedSize());
+                    }
+                    if (change.wasAdded()) {
+                        index.insert(from, added);
+                    }
+                }
+            }
+        }
+        change.reset();
+    }
+
+    private void watchChanged(ListChangeListener.Change<? extends T> change, boolean appended) {
+        List<T> removed = new ArrayList<>();
+        List<T> added = new ArrayList<>();
+        while (change.next()) {
+            removed.addAll(change.getRemoved());
+            if (change.wasAdded()) {
+                added.addAll(change.getAddedSubList());
+            }
+        }
+        if (appended && elementRows != null) {
+            int row = source.size() - added.size();
+            for (T t : added) {
+                elementRows.computeIfAbsent(t, k -> new IntList(1)).add(row++);
+            }
+        }
+        else {
+            elementRows = null;
+        }
+        // rows are not rebuilt for every change, removed elements are checked once before the next search
+        removedWatched.addAll(removed);
+        added.forEach(elementWatcher::watch);
+    }
+
+    /**
+     * Stop watching removed elements which are not in the source anymore.
+     * Removed element can still be in the source if it was there more than once or was added back.
+     */
+    private void unwatchRemoved() {
+        if (removedWatched.isEmpty()) {
+            return;
+        }
+        if (elementWatcher != null) {
+            removedWatched.stream()
+                    .filter(t -> elementRows(t) == null)
+                    .forEach(elementWatcher::unwatch);
+        }
+        removedWatched.clear();
+    }
+
+    /**
+     * Mark watched functions as changed. Elements are watched again once before the next pulse or search,
+     * or when configuration ends, no matter how many functions changed.
+     */
+    private void watchedFunctionsChanged() {
+        if (elementWatcher == null) {
+            return;
+        }
+        // rows of the elements may be outdated by the new collection even before elements are watched again
+        elementRows = null;
+        if (watchedFunctionsOutdated) {
+            return;
+        }
+        watchedFunctionsOutdated = true;
+        if (configurations > 0) {
+            return;
+        }
+        if (getScene() != null) {
+            Platform.requestNextPulse();
+        }
+        else {
+            Platform.runLater(this::updateWatchedFunctions);
+        }
+    }
+
+    /**
+     * Set functions watched in reactive mode and watch all elements with them again if they changed.
+     */
+    private void updateWatchedFunctions() {
+        if (!watchedFunctionsOutdated) {
+            return;
+        }
+        watchedFunctionsOutdated = false;
+        if (elementWatcher == null) {
+            return;
+        }
+        List<Function<T, ?>> functions = new ArrayList<>();
+        for (FunctionRawOrProperty<T, String> function : searchTextFunctions) {
+            if (function.isProperty()) {
+                functions.add(function::observable);
+            }
+        }
+        if (nameFunction != null && nameFunction.isProperty()) {
+            functions.add(nameFunction::observable);
+        }
+        predicates.values().stream()
+                .filter(option -> option.getter != null)
+                .forEach(option -> functions.add(option.getter));
+        queryFields.values().forEach(field -> functions.add(field.getter));
+        elementWatcher.clear();
+        elementWatcher.setFunctions(functions);
+        elementRows = null;
+        removedWatched.clear();
+        source.forEach(elementWatcher::watch);
+    }
+
+    private boolean rankedRows() {
+        return rankedTextSearch && !querySearch && searchTextField.getText() != null && !searchTextField.getText().isEmpty();
+    }
+
+    private IntList elementRows(T t) {
+        if (elementRows == null) {
+            elementRows = new IdentityHashMap<>();
+            for (int row = 0; row < source.size(); row++) {
+                elementRows.computeIfAbsent(source.get(row), k -> new IntList(1)).add(row);
+            }
+        }
+        return elementRows.get(t);
+    }
+
+    /**
+     * Check again rows of the element which observable value changed and show or hide them.
+     */
+    private void elementChanged(T t) {
+        searchKeyCache.invalidate(t);
+        invalidatePopup(t);
+        IntList rows = elementRows(t);
+        if (rows == null) {
+            return;
+        }
+        String key = searchKeyCache.get(t);
+        List<OptionIndex<T>> indexes = indexes();
+        synchronized (indexLock) {
+            for (int i = 0; i < rows.size(); i++) {
+                int row = rows.get(i);
+                textQueryCache.update(row, key);
+                for (OptionIndex<T> index : indexes) {
+                    index.update(row, t);
+                }
+            }
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            for (SearchOption option : predicates.values()) {
+                option.evaluated.clear(rows.get(i));
+            }
+        }
+        // search that is requested or running will check the element anyway, ranking needs all scores,
+        // query can not be tested for a single element without its plan, facet counts are computed from
+        // the whole search result
+        if (searchRequested || runningSearch != null || rankedRows() || querySearch
+                || predicates.values().stream().anyMatch(option -> option.facetCounts != null)) {
+            requestSearch();
+            return;
+        }
+        String text = searchTextField.getText() != null ? searchTextField.getText().toLowerCase() : "";
+        boolean visible = key.contains(text);
+        for (SearchOption option : predicates.values()) {
+            if (!visible) {
+                break;
+            }
+            visible = option.compiled.test(t);
+            for (int i = 0; i < rows.size(); i++) {
+                option.evaluated.set(rows.get(i));
+                option.passed.set(rows.get(i), visible);
+            }
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            filteredList.setRowVisible(rows.get(i), visible);
         }
     }
 
-    public void addContextMenuItem(String name, Consumer<T> consumer) {
-        if (elementsContextMenu == null) {
-            elementsContextMenu = new ContextMenu();
-        }
-        MenuItem menuItem = new MenuItem(name);
-        menuItem.setOnAction(event -> {
-            if (contextMenuRequester != null) {
-                consumer.accept(contextMenuRequester);
-                contextMenuRequester = null;
+    private void initSearchScheduler() {
+        sceneProperty().addListener((observableValue, oldScene, newScene) -> {
+            if (oldScene != null) {
+                oldScene.removePreLayoutPulseListener(pulseListener);
+            }
+            if (newScene != null) {
+                newScene.addPreLayoutPulseListener(pulseListener);
+            }
+            else {
+                // there will be no pulse to load requested chunk and watch elements
+                if (chunkRequested) {
+                    chunkRequested = false;
+                    requestChunk();
+                }
+                if (watchedFunctionsOutdated) {
+                    Platform.runLater(this::updateWatchedFunctions);
+                }
             }
         });
-        elementsContextMenu.getItems().add(menuItem);
     }
 
-    public void addContextMenu(String name, Consumer<SearchPaneMenuItem> children) {
-        Menu menu = new Menu(name);
-        SearchPaneMenuItem searchPaneMenuItem = new SearchPaneMenuItem(new ArrayList<>());
-        children.accept(searchPaneMenuItem);
-        menu.getItems().addAll(searchPaneMenuItem.list);
-        elementsContextMenu.getItems().add(menu);
+    private void pulse() {
+        updateWatchedFunctions();
+        if (chunkRequested) {
+            chunkRequested = false;
+            loadChunk(loadingIterator);
+        }
+        runRequestedSearch();
     }
 
-    public PopupBuilder popupBuilder() {
-        if (popupBuilder == null) {
-            popupBuilder = new PopupBuilder();
+    /**
+     * Mark search as requested. Search will run once before the next pulse (or as soon as possible
+     * if pane is not in a scene) no matter how many times this method is called before it.
+     */
+    private void requestSearch() {
+        // search that is running now is outdated
+        searchGeneration.incrementAndGet();
+        if (searchRequested) {
+            return;
+        }
+        searchRequested = true;
+        if (searchSuspensions > 0) {
+            return;
+        }
+        Scene scene = getScene();
+        if (scene != null) {
+            Platform.requestNextPulse();
+        }
+        else {
+            Platform.runLater(this::runRequestedSearch);
         }
-        return popupBuilder;
     }
 
-    public void setIcon(Function<T, Image> iconFunction) {
-        setIcon(iconFunction, 25d, 25d);
+    private void runRequestedSearch() {
+        if (searchRequested && searchSuspensions == 0) {
+            updateSearch();
+        }
     }
 
-    public void setIcon(Function<T, Image> iconFunction, double width, double height) {
-        customCellGraphic = new CustomCellGraphic<>(
-                () -> {
-                    ImageView imageView = new ImageView();
-                    imageView.setFitWidth(width);
-                    imageView.setFitHeight(height);
-                    return imageView;
-                },
-                (t, view) -> view.setImage(iconFunction.apply(t)));
-        updateCellFactory();
+    private void updateSearch() {
+        updateWatchedFunctions();
+        unwatchRemoved();
+        searchRequested = false;
+        if (runningSearch != null) {
+            runningSearch.cancel(false);
+            runningSearch = null;
+        }
+        if (dataSource != null) {
+            updateDataSourceSearch(searchGeneration.incrementAndGet());
+            return;
+        }
+        SearchSnapshot snapshot = new SearchSnapshot(searchGeneration.incrementAndGet());
+        if (searchExecutor == null) {
+            BitSet rows = snapshot.rows();
+            // null means one of the predicates requested a new search while being tested
+            if (rows != null) {
+                applySearch(snapshot, rows);
+            }
+            return;
+        }
+        runningGeneration = snapshot.generation;
+        runningSearch = searchExecutor.submit(() -> {
+            BitSet rows = null;
+            try {
+                rows = snapshot.rows();
+            } catch (RuntimeException exception) {
+                Platform.runLater(() -> {
+                    throw exception;
+                });
+            } finally {
+                BitSet result = rows;
+                Platform.runLater(() -> {
+                    searchFinished(snapshot.generation);
+                    if (result != null && !snapshot.isStale()) {
+                        applySearch(snapshot, result);
+                    }
+                });
+            }
+        });
     }
 
-    public <N extends Node> void setCellGraphic(Supplier<N> creator, BiConsumer<T, N> updater) {
-        customCellGraphic = new CustomCellGraphic<>(creator, updater);
-        updateCellFactory();
+    /**
+     * Forget finished background search, so it is not treated as running. Outdated searches are forgotten too,
+     * unless a newer search is already running.
+     */
+    private void searchFinished(long generation) {
+        if (runningGeneration == generation) {
+            runningSearch = null;
+        }
     }
 
-    private void initTextSearch() {
-        searchTextField.textProperty().addListener((observableValue, oldV, newV) -> {
-            predicates.put(searchTextField, t -> searchTextFunctions.stream()
-                    .anyMatch(func -> func.apply(t).toLowerCase().contains(newV.toLowerCase())));
-            updateSearch();
+    private void updateDataSourceSearch(long generation) {
+        String fieldText = searchTextField.getText();
+        List<Function<T, String>> textFunctions = new ArrayList<>(searchTextFunctions);
+        List<Predicate<T>> tests = predicates.values().stream()
+                .map(option -> option.compiled)
+                .collect(Collectors.toList());
+        SearchPaneQuery<T> query = new SearchPaneQuery<>(fieldText != null ? fieldText.toLowerCase() : "",
+                textFunctions, t -> tests.stream().allMatch(test -> test.test(t)));
+        SearchPaneDataSource<T> source = dataSource;
+        // pages are always fetched in background, pages around shown ones only if search is asynchronous
+        ExecutorService fetchExecutor = searchExecutor != null ? searchExecutor : DefaultSearchExecutor.EXECUTOR;
+        boolean prefetch = searchExecutor != null;
+        if (searchExecutor == null) {
+            listView.setItems(new PagedList<>(source, query, source.count(query), fetchExecutor, prefetch));
+            return;
+        }
+        runningGeneration = generation;
+        runningSearch = searchExecutor.submit(() -> {
+            try {
+                int count = source.count(query);
+                Platform.runLater(() -> {
+                    searchFinished(generation);
+                    if (generation == searchGeneration.get()) {
+                        listView.setItems(new PagedList<>(source, query, count, fetchExecutor, prefetch));
+                    }
+                });
+            } catch (RuntimeException exception) {
+                Platform.runLater(() -> {
+                    searchFinished(generation);
+                    throw exception;
+                });
+            }
         });
     }
 
+    private void applySearch(SearchSnapshot snapshot, BitSet rows) {
+        if (snapshot.textResult != null) {
+            synchronized (indexLock) {
+                textQueryCache.put(snapshot.text, snapshot.textResult, snapshot.elements.size());
+            }
+        }
+        snapshot.options.forEach(OptionRows::store);
+        searchOptionsOrder = snapshot.order;
+        snapshot.facetCounts.forEach(this::updateFacetCounts);
+        SelectedRows selected = new SelectedRows();
+        rankedResultsCount = snapshot.rankedRows != null ? rows.cardinality() : 0;
+        if (snapshot.rankedRows != null) {
+            filteredList.setRankedRows(snapshot.rankedRows);
+        }
+        else {
+            filteredList.setRows(rows);
+        }
+        // need to manually reselect items because selection disappears after filtered list update.
+        selected.restore();
+    }
 
-    private void updateSearch() {
-        T selectedItem = listView.getSelectionModel().getSelectedItem();
-        filteredList.setPredicate(e -> predicates.values().stream()
-                .allMatch(tPredicate -> tPredicate.test(e)));
-        // need to manually reselect item because selection disappears after filtered list update.
-        if (filteredList.contains(selectedItem)) {
-            listView.getSelectionModel().select(selectedItem);
+    private void updateFacetCounts(SearchOption option, Map<Object, Integer> counts) {
+        if (option.facetCounts == null) {
+            return;
         }
+        option.facetCounts.keySet().retainAll(counts.keySet());
+        counts.forEach((value, count) -> {
+            if (!count.equals(option.facetCounts.get(value))) {
+                option.facetCounts.put(value, count);
+            }
+        });
     }
 
     void updateCellFactory() {
+        if (configurations > 0) {
+            cellFactoryOutdated = true;
+            return;
+        }
+        cellFactoryOutdated = false;
         listView.setCellFactory(lv -> {
             ListCell<T> cell = new ListCell<>() {
                 Node customGraphic = customGraphicOrNull();
@@ -637,9 +1846,13 @@ public class SearchPane<T> extends Pane {
                 @Override
                 protected void updateItem(T t, boolean empty) {
                     super.updateItem(t, empty);
-                    if (empty) {
-                        setText(null);
+                    if (empty || t == null) {
+                        // null element is a data source element that is not loaded yet
+                        setText(empty ? null : LOADING_TEXT);
                         setGraphic(null);
+                        if (customGraphic instanceof AsyncIconView) {
+                            ((AsyncIconView) customGraphic).release();
+                        }
                     } else {
                         // set graphic
                         if (customCellGraphic != null) {
@@ -647,7 +1860,7 @@ public class SearchPane<T> extends Pane {
                             setGraphic(customGraphic);
                         }
                         // set name by:
-                        setText(nameFunction.apply(t));
+                        setText(nameCache.get(t));
                     }
                 }
 
@@ -662,7 +1875,7 @@ public class SearchPane<T> extends Pane {
             // set popup:
             if ((popupFunction != null || popupNodeHolder != null) && popup != null) {
                 cell.hoverProperty().addListener((observableValue, oldV, newV) -> {
-                    if (newV && !cell.isEmpty()) {
+                    if (newV && !cell.isEmpty() && cell.getItem() != null) {
                         showPopup(cell);
                     } else {
                         hidePopup();
@@ -681,10 +1894,22 @@ public class SearchPane<T> extends Pane {
     }
 
     private void showPopup(ListCell<T> cell) {
-        if (popupFunction != null) {
-            Node popupNode = popupFunction.apply(cell.getItem());
+        if (popupSnapshots.isEnabled()) {
+            if (popupImageView == null) {
+                popupImageView = new ImageView();
+            }
+            // popup node must be detached from the popup before it is rendered
+            popup.setGraphic(popupImageView);
+            popupImageView.setImage(popupSnapshots.get(cell.getItem(), this::renderPopup));
+            prefetchPopups(cell.getIndex());
+        } else if (popupFunction != null) {
+            Node popupNode = popupCache.get(cell.getItem(), popupFunction);
             popup.setGraphic(popupNode);
+            prefetchPopups(cell.getIndex());
         } else if (popupNodeHolder != null) {
+            if (popup.getGraphic() != popupNodeHolder) {
+                popup.setGraphic(popupNodeHolder);
+            }
             popupNodeHolder.applyToCell(cell);
         }
         Bounds bounds = cell.localToScreen(cell.getBoundsInLocal());
@@ -693,34 +1918,614 @@ public class SearchPane<T> extends Pane {
 
     private void hidePopup() {
         popup.hide();
+        if (popupPrefetch != null) {
+            popupPrefetch.stop();
+        }
+    }
+
+    /**
+     * Render popup of the element to an image with styles of this pane scene and of the popup.
+     */
+    private Image renderPopup(T t) {
+        Node node;
+        if (popupFunction != null) {
+            node = popupCache.get(t, popupFunction);
+        }
+        else {
+            popupNodeHolder.apply(t);
+            node = popupNodeHolder;
+        }
+        if (popupSnapshotScene == null) {
+            StackPane root = new StackPane();
+            // popup style class gives the node same inherited styles (like text color) as inside the popup
+            root.setStyle("-fx-background-color: transparent; -fx-padding: 0;");
+            popupSnapshotScene = new Scene(root);
+        }
+        if (getScene() != null) {
+            popupSnapshotScene.getStylesheets().setAll(getScene().getStylesheets());
+        }
+        StackPane root = (StackPane) popupSnapshotScene.getRoot();
+        root.getStyleClass().setAll(popup.getStyleClass());
+        root.getChildren().setAll(node);
+        root.applyCss();
+        root.resize(root.prefWidth(-1), root.prefHeight(-1));
+        root.layout();
+        SnapshotParameters parameters = new SnapshotParameters();
+        parameters.setFill(Color.TRANSPARENT);
+        WritableImage image = node.snapshot(parameters, null);
+        root.getChildren().clear();
+        return image;
+    }
+
+    /**
+     * Create popups of cells around the hovered one if mouse stays over it.
+     */
+    private void prefetchPopups(int index) {
+        boolean snapshots = popupSnapshots.isEnabled();
+        if (!snapshots && !popupCache.isEnabled()) {
+            return;
+        }
+        if (popupPrefetch == null) {
+            popupPrefetch = new PauseTransition(POPUP_PREFETCH_DELAY);
+        }
+        popupPrefetch.setOnFinished(event -> {
+            List<T> items = listView.getItems();
+            for (int neighbour : new int[]{index - 1, index + 1}) {
+                if (neighbour < 0 || neighbour >= items.size() || items.get(neighbour) == null) {
+                    continue;
+                }
+                if (snapshots && popupSnapshots.isEnabled()) {
+                    popupSnapshots.prefetch(items.get(neighbour), this::renderPopup);
+                }
+                else if (popupFunction != null) {
+                    popupCache.prefetch(items.get(neighbour), popupFunction);
+                }
+            }
+        });
+        popupPrefetch.playFromStart();
+    }
+
+
+    /**
+     * Search option linked to a control. Listens to the control and recreates predicate when control state changes.
+     * Keeps results of the predicate for the rows it was tested on, so when other option changes,
+     * this option is not tested again on the same rows.
+     */
+    private class SearchOption implements InvalidationListener {
+
+        // minimal number of tested rows to take time measurement into account
+        private static final int MIN_MEASURED_ROWS = 32;
+        private static final double MEASUREMENT_WEIGHT = 0.3;
+
+        private final Supplier<Predicate<T>> compiler;
+        private Object key;
+        // null for custom predicates
+        private Function<T, ?> getter;
+        // index of the getter results and query returning rows that match control state, null if option has no index
+        private OptionIndex<T> index;
+        // reads control state on JavaFX thread and returns query that can run on any thread holding index lock
+        private Supplier<Function<List<T>, BitSet>> indexQuery;
+        // true if rows of the current control state were taken from the index
+        private boolean indexApplied;
+        // number of elements by value, null if facet counts were not requested
+        private ObservableMap<Object, Integer> facetCounts;
+        private Predicate<T> compiled;
+        private BitSet evaluated = new BitSet();
+        private BitSet passed = new BitSet();
+        // true if getter returns observable values, null until checked on the first element
+        private Boolean observableGetter;
+        // exponential moving averages of the nanoseconds spent on a single test and of the share of passed tests
+        private double cost = Double.NaN;
+        private double passRate = Double.NaN;
+
+        SearchOption(Supplier<Predicate<T>> compiler) {
+            this.compiler = compiler;
+            this.compiled = compiler.get();
+        }
+
+        @Override
+        public void invalidated(Observable observable) {
+            update();
+        }
+
+        void update() {
+            compiled = compiler.get();
+            clearRows();
+            requestSearch();
+        }
+
+        void clearRows() {
+            evaluated = new BitSet();
+            passed = new BitSet();
+            indexApplied = false;
+        }
+
+        void measured(long nanos, int tested, int passedTests) {
+            if (tested < MIN_MEASURED_ROWS) {
+                return;
+            }
+            double newCost = (double) nanos / tested;
+            double newPassRate = (double) passedTests / tested;
+            if (isMeasured()) {
+                cost += (newCost - cost) * MEASUREMENT_WEIGHT;
+                passRate += (newPassRate - passRate) * MEASUREMENT_WEIGHT;
+            }
+            else {
+                cost = newCost;
+                passRate = newPassRate;
+            }
+        }
+
+        boolean isMeasured() {
+            return !Double.isNaN(cost);
+        }
+
+        /**
+         * @return true if index results can be trusted, so option does not have to test elements.
+         */
+        boolean indexUsable() {
+            return indexQuery != null && indexedSearchOptions && resultsCacheable();
+        }
+
+        /**
+         * @return false if option results can change without notice, so they must not be kept between searches.
+         */
+        boolean resultsCacheable() {
+            if (elementWatcher != null || getter == null) {
+                return true;
+            }
+            if (observableGetter == null && !source.isEmpty()) {
+                observableGetter = getter.apply(source.get(0)) instanceof ObservableValue;
+            }
+            return observableGetter == null || !observableGetter;
+        }
+
+        /**
+         * Expected cost of rejecting an element with this option. Options with lower rank should be tested first.
+         */
+        double rank() {
+            return cost / Math.max(1d - passRate, 0.001d);
+        }
+    }
+
+    /**
+     * Option rows used by a single search. In asynchronous mode these are copies that are stored back
+     * to the option only if search result is applied.
+     */
+    private class OptionRows {
+
+        private final SearchOption option;
+        private final Predicate<T> test;
+        private BitSet evaluated;
+        private BitSet passed;
+        // false if rows are tested again by every search
+        private final boolean cached;
+        // query of rows matching control state captured on JavaFX thread, null if rows are not taken from the index
+        private final Function<List<T>, BitSet> indexQuery;
+        private boolean indexApplied;
+        // index counting values, null if facet counts were not requested
+        private final EqualityIndex<T> facetIndex;
+        // false if index values may be outdated, so they are read again before counting
+        private final boolean indexTrusted;
+        private long nanos;
+        private int tested;
+        private int passedTests;
+
+        OptionRows(SearchOption option, boolean copy) {
+            this.option = option;
+            this.test = option.compiled;
+            this.cached = option.resultsCacheable();
+            if (!cached) {
+                this.evaluated = new BitSet();
+                this.passed = new BitSet();
+            }
+            else {
+                this.evaluated = copy ? (BitSet) option.evaluated.clone() : option.evaluated;
+                this.passed = copy ? (BitSet) option.passed.clone() : option.passed;
+            }
+            this.indexTrusted = option.indexUsable();
+            this.indexQuery = indexTrusted && !option.indexApplied ? option.indexQuery.get() : null;
+            this.facetIndex = option.facetCounts != null ? (EqualityIndex<T>) option.index : null;
+        }
+
+        /**
+         * Take rows matching control state from the index, so option is not tested on them.
+         * Must be called holding index lock.
+         */
+        void applyIndex(List<T> elements) {
+            if (indexQuery == null) {
+                return;
+            }
+            passed = indexQuery.apply(elements);
+            evaluated = allRows(elements.size());
+            indexApplied = true;
+        }
+
+        /**
+         * Count values of the rows. Must be called holding index lock.
+         */
+        Map<Object, Integer> facetCounts(List<T> elements, BitSet rows) {
+            if (!indexTrusted) {
+                // values may have changed since index was built, so it is read again
+                facetIndex.invalidate();
+            }
+            return facetIndex.counts(elements, rows);
+        }
+
+        /**
+         * Test option on candidate rows it was not tested on yet and remove rows that did not pass.
+         *
+         * @param measured false if tests must not change measured cost and pass rate of the option,
+         *                 so order of options does not depend on tests made for other purposes than search.
+         * @return false if search became outdated.
+         */
+        boolean filter(SearchSnapshot snapshot, BitSet candidates, boolean measured) {
+            BitSet need = (BitSet) candidates.clone();
+            need.andNot(evaluated);
+            long start = System.nanoTime();
+            int checked = 0;
+            int checkedPassed = 0;
+            for (int row = need.nextSetBit(0); row >= 0; row = need.nextSetBit(row + 1)) {
+                if (++checked % SearchSnapshot.STALE_CHECK_INTERVAL == 0 && snapshot.isStale()) {
+                    return false;
+                }
+                if (test.test(snapshot.elements.get(row))) {
+                    passed.set(row);
+                    checkedPassed++;
+                }
+                evaluated.set(row);
+            }
+            if (measured) {
+                nanos += System.nanoTime() - start;
+                tested += checked;
+                passedTests += checkedPassed;
+            }
+            candidates.and(passed);
+            return true;
+        }
+
+        int uncached(BitSet candidates) {
+            BitSet need = (BitSet) candidates.clone();
+            need.andNot(evaluated);
+            return need.cardinality();
+        }
+
+        void store() {
+            if (cached) {
+                option.evaluated = evaluated;
+                option.passed = passed;
+                option.indexApplied |= indexApplied;
+            }
+            option.measured(nanos, tested, passedTests);
+        }
+    }
+
+    /**
+     * Search state captured on the JavaFX thread. Only control state and references to elements that do not change
+     * are captured, rows are taken from indexes and cached results when search is evaluated on any thread.
+     */
+    private class SearchSnapshot {
+
+        // how many rows are checked between checks if search is outdated
+        private static final int STALE_CHECK_INTERVAL = 1024;
+
+        private final long generation;
+        private final List<T> elements;
+        // version of the source elements belong to, indexes are read only if source did not change
+        private final long version;
+        private final TextSearchIndex<T> textIndex;
+        private final String text;
+        // rows matching text if they are already known, null otherwise
+        private BitSet textRows;
+        // rows that need to be checked with text predicate, null means all rows
+        private BitSet textBase;
+        private Predicate<T> textTest;
+        // text query result that must be cached after search is applied
+        private BitSet textResult;
+        // property keys computed in background are not cached and not listened to, so their results can not be cached
+        private final boolean textResultCacheable;
+        // compiled query if search text field is parsed as a query, null otherwise
+        private SearchQuery<T> query;
+        // number of best rows to show if search is ranked, 0 otherwise
+        private final int rankedLimit;
+        // best rows in order of score, null if search is not ranked
+        private int[] rankedRows;
+        private final List<OptionRows> options = new ArrayList<>();
+        private List<Object> order = List.of();
+        // value counts of rows passing text and all other options, for every option with facet counts
+        private final Map<SearchOption, Map<Object, Integer>> facetCounts = new HashMap<>();
+
+        SearchSnapshot(long generation) {
+            this.generation = generation;
+            this.elements = searchExecutor == null ? source : sharedSource();
+            this.version = sourceVersion;
+            this.textIndex = textSearchIndex;
+            String fieldText = searchTextField.getText();
+            this.text = fieldText != null ? fieldText.toLowerCase() : "";
+            this.rankedLimit = rankedRows() ? shownRankedResults : 0;
+            this.textResultCacheable = elementWatcher != null || searchExecutor == null
+                    || searchTextFunctions.stream().noneMatch(FunctionRawOrProperty::isProperty);
+            if (querySearch && !text.isEmpty()) {
+                query = SearchQuery.compile(fieldText, queryFields, queryStats);
+            }
+            else if (rankedLimit > 0) {
+                // fuzzy matches are not cached and not indexed
+                textTest = t -> FuzzyScorer.matches(searchKeyCache.get(t), text);
+            }
+            predicates.values().forEach(option -> options.add(new OptionRows(option, searchExecutor != null)));
+        }
+
+        /**
+         * Take rows from cached text results and indexes.
+         *
+         * @return false if source changed after this search was captured.
+         */
+        private boolean prepare() {
+            synchronized (indexLock) {
+                if (version != sourceVersion) {
+                    return false;
+                }
+                if (query != null) {
+                    query.resolve(elements, this::queryTextRows);
+                }
+                else if (rankedLimit == 0 && !text.isEmpty()) {
+                    textRows = textQueryCache.get(text, elements.size());
+                    if (textRows == null) {
+                        textBase = textQueryCache.base(text, elements.size());
+                        if (textIndex != null) {
+                            textRows = textIndex.search(elements, text, textBase);
+                            textQueryCache.put(text, textRows, elements.size());
+                        }
+                        else {
+                            textTest = textPredicate(text);
+                        }
+                    }
+                }
+                options.forEach(option -> option.applyIndex(elements));
+            }
+            return true;
+        }
+
+        boolean isStale() {
+            return generation != searchGeneration.get();
+        }
+
+        /**
+         * @return rows which search keys contain the word if they are cached or indexed, null otherwise.
+         */
+        private BitSet queryTextRows(String word) {
+            BitSet rows = textQueryCache.get(word, elements.size());
+            if (rows == null && textIndex != null) {
+                rows = textIndex.search(elements, word, textQueryCache.base(word, elements.size()));
+                textQueryCache.put(word, rows, elements.size());
+            }
+            return rows;
+        }
+
+        /**
+         * @return rows that passed all predicates or null if this search became outdated.
+         */
+        BitSet rows() {
+            if (!prepare()) {
+                return null;
+            }
+            BitSet rows;
+            int checked = 0;
+            if (query != null) {
+                rows = new BitSet(elements.size());
+                rows.set(0, elements.size());
+                rows = query.filter(elements, rows, searchKeyCache::get, this::isStale);
+                if (rows == null) {
+                    return null;
+                }
+            }
+            else if (textRows != null) {
+                rows = textRows;
+            }
+            else {
+                if (textBase != null) {
+                    rows = textBase;
+                }
+                else {
+                    rows = new BitSet(elements.size());
+                    rows.set(0, elements.size());
+                }
+                if (textTest != null) {
+                    for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                        if (++checked % STALE_CHECK_INTERVAL == 0 && isStale()) {
+                            return null;
+                        }
+                        if (!textTest.test(elements.get(row))) {
+                            rows.clear(row);
+                        }
+                    }
+                    if (rankedLimit == 0 && textResultCacheable) {
+                        textResult = (BitSet) rows.clone();
+                    }
+                }
+            }
+            // options with cached results go first, so options that must be tested are tested on less rows.
+            // Then options that reject elements cheaper, then not measured options in order they were added.
+            final BitSet candidates = rows;
+            List<OptionRows> ordered = new ArrayList<>(options);
+            Map<OptionRows, Double> ranks = new HashMap<>();
+            ordered.forEach(option -> ranks.put(option, option.uncached(candidates) == 0 ? -1d
+                    : option.option.isMeasured() ? option.option.rank()
+                    : Double.POSITIVE_INFINITY));
+            ordered.sort(Comparator.comparingDouble(ranks::get));
+            order = ordered.stream()
+                    .map(option -> option.option.key)
+                    .collect(Collectors.toUnmodifiableList());
+            final BitSet textMatched = (BitSet) rows.clone();
+            for (OptionRows option : ordered) {
+                if (rows.isEmpty()) {
+                    break;
+                }
+                if (!option.filter(this, rows, true)) {
+                    return null;
+                }
+            }
+            // facet rows ignore own option, so other options are also tested on rows only this option rejected
+            Map<OptionRows, BitSet> facetRows = new HashMap<>();
+            for (OptionRows facet : ordered) {
+                if (facet.facetIndex == null) {
+                    continue;
+                }
+                BitSet facetCandidates = (BitSet) textMatched.clone();
+                for (OptionRows option : ordered) {
+                    // facet tests are not measured, so order of options does not depend on facet counts
+                    if (option != facet && !facetCandidates.isEmpty() && !option.filter(this, facetCandidates, false)) {
+                        return null;
+                    }
+                }
+                facetRows.put(facet, facetCandidates);
+            }
+            if (!facetRows.isEmpty()) {
+                synchronized (indexLock) {
+                    if (version != sourceVersion) {
+                        return null;
+                    }
+                    facetRows.forEach((facet, facetCandidates) ->
+                            facetCounts.put(facet.option, facet.facetCounts(elements, facetCandidates)));
+                }
+            }
+            if (rankedLimit > 0) {
+                TopRows top = new TopRows(rankedLimit);
+                for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                    if (++checked % STALE_CHECK_INTERVAL == 0 && isStale()) {
+                        return null;
+                    }
+                    top.offer(row, FuzzyScorer.score(searchKeyCache.get(elements.get(row)), text));
+                }
+                rankedRows = top.toArray();
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * Selected elements of the list view with their source rows. Elements are found again by source rows,
+     * so restoring selection does not compare elements with equals. If source changed and row now holds
+     * another element, element is found by identity.
+     */
+    private class SelectedRows {
+
+        private final List<T> elements = new ArrayList<>();
+        private final IntList rows = new IntList();
+
+        SelectedRows() {
+            MultipleSelectionModel<T> model = listView.getSelectionModel();
+            int lead = model.getSelectedIndex();
+            for (int index : model.getSelectedIndices()) {
+                if (index != lead) {
+                    add(index);
+                }
+            }
+            // selected index is selected last, so it stays the selected item
+            if (lead >= 0) {
+                add(lead);
+            }
+        }
+
+        private void add(int index) {
+            if (index < filteredList.size()) {
+                elements.add(filteredList.get(index));
+                rows.add(filteredList.getSourceIndex(index));
+            }
+        }
+
+        void restore() {
+            if (elements.isEmpty()) {
+                return;
+            }
+            Map<T, Integer> byIdentity = null;
+            IntList indices = new IntList(elements.size());
+            for (int i = 0; i < elements.size(); i++) {
+                T element = elements.get(i);
+                int index = filteredList.getViewIndex(rows.get(i));
+                if (index < 0 || filteredList.get(index) != element) {
+                    if (byIdentity == null) {
+                        byIdentity = new IdentityHashMap<>();
+                        for (int j = 0; j < filteredList.size(); j++) {
+                            byIdentity.putIfAbsent(filteredList.get(j), j);
+                        }
+                    }
+                    index = byIdentity.getOrDefault(element, -1);
+                }
+                if (index >= 0) {
+                    indices.add(index);
+                }
+            }
+            MultipleSelectionModel<T> model = listView.getSelectionModel();
+            if (isSelected(model, indices)) {
+                return;
+            }
+            model.clearSelection();
+            if (!indices.isEmpty()) {
+                int[] rest = new int[indices.size() - 1];
+                for (int i = 0; i < rest.length; i++) {
+                    rest[i] = indices.get(i + 1);
+                }
+                // first index is selected first, last one becomes selected index
+                model.selectIndices(indices.get(0), rest);
+            }
+        }
+
+        private boolean isSelected(MultipleSelectionModel<T> model, IntList indices) {
+            if (model.getSelectedIndices().size() != indices.size()) {
+                return false;
+            }
+            for (int i = 0; i < indices.size(); i++) {
+                if (!model.isSelected(indices.get(i))) {
+                    return false;
+                }
+            }
+            return indices.isEmpty() || model.getSelectedIndex() == indices.get(indices.size() - 1);
+        }
     }
 
+    private static class DefaultSearchExecutor {
+
+        private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SearchPane search");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 
     private class PopupNodeHolder extends AnchorPane {
 
         private Map<Label, Function<T, String>> textFunctions;
-        private Map<Node, Function<T, Node>> nodeFunctions;
+        // slots keep their place in the popup, only content of a slot is replaced
+        private Map<Pane, Function<T, Node>> nodeFunctions;
+        private Map<Node, BiConsumer<T, Node>> nodeUpdaters;
         private VBox vBox;
 
-        PopupNodeHolder(VBox builderBox, Map<Label, Function<T, String>> textFunctions, Map<Node, Function<T, Node>> nodeFunctions) {
+        PopupNodeHolder(VBox builderBox, Map<Label, Function<T, String>> textFunctions, Map<Pane, Function<T, Node>> nodeFunctions,
+                        Map<Node, BiConsumer<T, Node>> nodeUpdaters) {
             getChildren().add(builderBox);
             vBox = builderBox;
             this.textFunctions = textFunctions;
-            this.nodeFunctions = new ConcurrentHashMap<>(nodeFunctions);
+            this.nodeFunctions = nodeFunctions;
+            this.nodeUpdaters = nodeUpdaters;
             popup = new Tooltip();
             popup.setGraphic(this);
             popupFunction = null;
         }
 
         void applyToCell(ListCell<T> cell) {
-            textFunctions.forEach((label, function) -> label.setText(function.apply(cell.getItem())));
-            nodeFunctions.forEach((node, function) -> {
-                Node newNode = function.apply(cell.getItem());
-                int position = vBox.getChildren().indexOf(node);
-                vBox.getChildren().remove(node);
-                vBox.getChildren().add(position, newNode);
-                nodeFunctions.remove(node);
-                nodeFunctions.put(newNode, function);
+            apply(cell.getItem());
+        }
+
+        void apply(T t) {
+            textFunctions.forEach((label, function) -> label.setText(function.apply(t)));
+            nodeUpdaters.forEach((node, updater) -> updater.accept(t, node));
+            nodeFunctions.forEach((slot, function) -> {
+                Node newNode = function.apply(t);
+                ObservableList<Node> content = slot.getChildren();
+                if (content.size() != 1 || content.get(0) != newNode) {
+                    content.setAll(newNode);
+                }
             });
         }
 
@@ -780,7 +2585,8 @@ public class SearchPane<T> extends Pane {
 
         private VBox mainVBox;
         private Map<Label, Function<T, String>> textFunctions;
-        private Map<Node, Function<T, Node>> nodeFunctions;
+        private Map<Pane, Function<T, Node>> nodeFunctions;
+        private Map<Node, BiConsumer<T, Node>> nodeUpdaters;
         private String textStyle;
 
 
@@ -789,6 +2595,7 @@ public class SearchPane<T> extends Pane {
             this.mainVBox.setAlignment(Pos.CENTER);
             textFunctions = new HashMap<>();
             nodeFunctions = new HashMap<>();
+            nodeUpdaters = new LinkedHashMap<>();
         }
 
         public PopupBuilder addText(String text) {
@@ -820,15 +2627,35 @@ public class SearchPane<T> extends Pane {
             return this;
         }
 
+        /**
+         * Add node created by the function every time popup is shown.
+         * If function creates heavy nodes, prefer addNode with creator and updater.
+         */
         public PopupBuilder addNode(Function<T, Node> function) {
-            Node placeHolder = new AnchorPane();
-            nodeFunctions.put(placeHolder, function);
-            mainVBox.getChildren().add(placeHolder);
+            StackPane slot = new StackPane();
+            nodeFunctions.put(slot, function);
+            mainVBox.getChildren().add(slot);
+            return this;
+        }
+
+        /**
+         * Add node that is created once and updated with element every time popup is shown.
+         * Structure of the popup does not change when popup is shown for another element.
+         *
+         * @param creator creates the node.
+         * @param updater updates the node with element of the hovered cell.
+         */
+        @SuppressWarnings("unchecked")
+        public <N extends Node> PopupBuilder addNode(Supplier<N> creator, BiConsumer<T, N> updater) {
+            N node = creator.get();
+            nodeUpdaters.put(node, (t, n) -> updater.accept(t, (N) n));
+            mainVBox.getChildren().add(node);
             return this;
         }
 
         public void apply() {
-            popupNodeHolder = new PopupNodeHolder(this.mainVBox, this.textFunctions, this.nodeFunctions);
+            popupNodeHolder = new PopupNodeHolder(this.mainVBox, this.textFunctions, this.nodeFunctions, this.nodeUpdaters);
+            popupSnapshots.clear();
             updateCellFactory();
         }
 
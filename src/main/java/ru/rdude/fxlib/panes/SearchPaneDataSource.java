@@ -0,0 +1,28 @@
+package ru.rdude.fxlib.panes;
+
+import java.util.List;
+
+/**
+ * Source of elements for SearchPane that does not keep all elements in memory.
+ * SearchPane asks for the number of elements matching the query when search changes and then fetches
+ * only pages of elements that list view shows or is about to show.
+ * Methods can be called from JavaFX thread and from background threads, so implementations must be thread safe.
+ *
+ * @param <T> type of elements.
+ */
+public interface SearchPaneDataSource<T> {
+
+    /**
+     * @param query search text and search options state.
+     * @return number of elements matching the query.
+     */
+    int count(SearchPaneQuery<T> query);
+
+    /**
+     * @param query search text and search options state.
+     * @param from  position of the first element among matching elements, inclusive.
+     * @param to    position of the last element among matching elements, exclusive.
+     * @return elements matching the query in given positions. Can be shorter if there are fewer elements.
+     */
+    List<T> fetch(SearchPaneQuery<T> query, int from, int to);
+}
@@ -0,0 +1,40 @@
+package ru.rdude.fxlib.panes;
+
+import javafx.scene.control.Control;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Links controls of a controller to the element getters without reflection.
+ * Implementations are generated for controllers marked with AutoLinkControls annotation
+ * and are used by SearchPane addNodeAndAutoLinkControls method.
+ *
+ * @param <C> type of the controller.
+ * @param <T> type of the elements in search pane.
+ */
+public interface SearchPaneLinker<C, T> {
+
+    String SUFFIX = "SearchLinker";
+
+    /**
+     * @return class of the elements which getters are linked.
+     */
+    Class<T> elementClass();
+
+    /**
+     * @param controller controller with the controls.
+     * @return controls linked to the element getters.
+     */
+    Map<Control, Function<T, ?>> link(C controller);
+
+    /**
+     * Name of the linker class generated for the controller class.
+     * Generated linker is in the same package, nested class names are joined with underscore.
+     */
+    static String linkerClassName(Class<?> controllerClass) {
+        String name = controllerClass.getName();
+        int packageEnd = name.lastIndexOf('.');
+        return name.substring(0, packageEnd + 1) + name.substring(packageEnd + 1).replace('$', '_') + SUFFIX;
+    }
+}
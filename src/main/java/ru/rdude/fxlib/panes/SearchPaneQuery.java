@@ -0,0 +1,63 @@
+package ru.rdude.fxlib.panes;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * State of SearchPane search passed to SearchPaneDataSource. Every search creates a new query,
+ * so data source can cache results by query identity.
+ * Data source can use search text directly (for example in a database query) or test elements with test method.
+ *
+ * @param <T> type of elements.
+ */
+public final class SearchPaneQuery<T> implements Predicate<T> {
+
+    private final String text;
+    private final List<Function<T, String>> textFunctions;
+    private final Predicate<T> filter;
+
+    SearchPaneQuery(String text, List<Function<T, String>> textFunctions, Predicate<T> filter) {
+        this.text = text;
+        this.textFunctions = textFunctions;
+        this.filter = filter;
+    }
+
+    /**
+     * @return lower cased text of search text field, empty if there is no text.
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return predicate of all search options linked to controls.
+     */
+    public Predicate<T> getFilter() {
+        return filter;
+    }
+
+    /**
+     * @return true if result of one of text field search functions contains search text.
+     */
+    public boolean matchesText(T t) {
+        if (text.isEmpty()) {
+            return true;
+        }
+        for (Function<T, String> function : textFunctions) {
+            String value = function.apply(t);
+            if (value != null && value.toLowerCase().contains(text)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if element matches search text and all search options.
+     */
+    @Override
+    public boolean test(T t) {
+        return matchesText(t) && filter.test(t);
+    }
+}
@@ -0,0 +1,672 @@
+package ru.rdude.fxlib.panes;
+
+import java.util.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Query typed in the search text field when query search is enabled.
+ * Words match elements which search keys contain them (same as the plain text search). Terms
+ * field:text, field=value, field&gt;n, field&gt;=n, field&lt;n and field&lt;=n are tested against the getter of
+ * the registered field. Terms are combined with implicit or explicit AND, with OR and with NOT or leading minus
+ * (minus before a digit is a part of a negative number), parentheses group terms and quotes keep spaces and keywords. Words with unknown field names are searched as text.
+ * <p>
+ * Query is compiled into a plan. Resolve method runs while indexes are locked and finds rows of every term that has
+ * an index: text index for words, equality index for field:text and field=value, range index for comparisons.
+ * Groups of resolved terms are combined with bit set operations. Filter method can run on any thread and scans only
+ * rows left by previous terms of the group. Resolved terms go first, ordered by number of rows, then scanned terms
+ * ordered by measured cost per deciding row (rejected row in AND, accepted row in OR).
+ *
+ * @param <T> type of elements.
+ */
+class SearchQuery<T> {
+
+    private static final Pattern FIELD_TERM = Pattern.compile("([^:=<>]+)(:|>=|<=|=|>|<)(.*)");
+    // how many rows are checked between checks if search is outdated
+    private static final int STALE_CHECK_INTERVAL = 1024;
+    // statistics of this number of terms are kept between searches
+    private static final int MAX_STATS = 1024;
+
+    private final Node<T> root;
+
+    private SearchQuery(Node<T> root) {
+        this.root = root;
+    }
+
+    /**
+     * @param text   query text.
+     * @param fields registered fields by lower cased name.
+     * @param stats  measured statistics of terms, updated by searches and shared between queries.
+     */
+    static <T> SearchQuery<T> compile(String text, Map<String, QueryField<T>> fields, Map<String, TermStats> stats) {
+        if (stats.size() > MAX_STATS) {
+            stats.clear();
+        }
+        return new SearchQuery<>(new Parser<>(tokens(text), fields, stats).parse());
+    }
+
+    /**
+     * Find rows of the terms that have indexes. Must be called before filter, while indexes
+     * are not changed by other threads.
+     *
+     * @param source   source list indexes are built on.
+     * @param textRows function returning rows which search keys contain the lower cased word, or null if
+     *                 they are not known without scanning.
+     */
+    void resolve(List<? extends T> source, Function<String, BitSet> textRows) {
+        if (root != null) {
+            root.resolve(source, textRows);
+        }
+    }
+
+    /**
+     * @param elements   elements of the source list.
+     * @param candidates rows to test, changed by this method.
+     * @param keys       function returning search key of the element.
+     * @param stale      returns true if search became outdated.
+     * @return candidates matching the query or null if search became outdated.
+     */
+    BitSet filter(List<? extends T> elements, BitSet candidates, Function<T, String> keys, BooleanSupplier stale) {
+        return root != null ? root.filter(new Scan<>(elements, keys, stale), candidates) : candidates;
+    }
+
+    /**
+     * Cost and pass rate of a term measured by previous searches.
+     */
+    static class TermStats {
+
+        private static final int MIN_MEASURED_ROWS = 32;
+        private static final double MEASUREMENT_WEIGHT = 0.3;
+
+        private double cost = Double.NaN;
+        private double passRate;
+
+        synchronized void measured(long nanos, int tested, int passed) {
+            if (tested < MIN_MEASURED_ROWS) {
+                return;
+            }
+            double newCost = (double) nanos / tested;
+            double newPassRate = (double) passed / tested;
+            if (!Double.isNaN(cost)) {
+                cost += (newCost - cost) * MEASUREMENT_WEIGHT;
+                passRate += (newPassRate - passRate) * MEASUREMENT_WEIGHT;
+            }
+            else {
+                cost = newCost;
+                passRate = newPassRate;
+            }
+        }
+
+        /**
+         * @param and true if term is in AND group, false if in OR group.
+         * @return cost per row deciding the group, positive infinity if term was not measured.
+         */
+        synchronized double rank(boolean and) {
+            if (Double.isNaN(cost)) {
+                return Double.POSITIVE_INFINITY;
+            }
+            return cost / Math.max(and ? 1d - passRate : passRate, 0.001d);
+        }
+    }
+
+    private static class Scan<T> {
+
+        private final List<? extends T> elements;
+        private final Function<T, String> keys;
+        private final BooleanSupplier stale;
+        private int checked;
+
+        Scan(List<? extends T> elements, Function<T, String> keys, BooleanSupplier stale) {
+            this.elements = elements;
+            this.keys = keys;
+            this.stale = stale;
+        }
+
+        boolean isStale() {
+            return ++checked % STALE_CHECK_INTERVAL == 0 && stale.getAsBoolean();
+        }
+    }
+
+    private abstract static class Node<T> {
+
+        // rows found by indexes, null if node must be scanned
+        BitSet resolved;
+        int resolvedCount;
+
+        abstract void resolve(List<? extends T> source, Function<String, BitSet> textRows);
+
+        /**
+         * @param candidates rows to test, can be changed and returned.
+         * @return candidates matching this node or null if search became outdated.
+         */
+        abstract BitSet filter(Scan<T> scan, BitSet candidates);
+
+        abstract double rank(boolean and);
+
+        void setResolved(BitSet rows) {
+            resolved = rows;
+            resolvedCount = rows != null ? rows.cardinality() : 0;
+        }
+
+        static <T> List<Node<T>> ordered(List<Node<T>> nodes, boolean and) {
+            List<Node<T>> ordered = new ArrayList<>(nodes);
+            // in AND fewer rows reject more, in OR more rows accept more
+            ordered.sort(Comparator.comparing((Node<T> node) -> node.resolved == null)
+                    .thenComparingDouble(node -> node.resolved != null
+                            ? (and ? node.resolvedCount : -node.resolvedCount)
+                            : node.rank(and)));
+            return ordered;
+        }
+    }
+
+    private static class And<T> extends Node<T> {
+
+        private final List<Node<T>> nodes;
+
+        And(List<Node<T>> nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        void resolve(List<? extends T> source, Function<String, BitSet> textRows) {
+            nodes.forEach(node -> node.resolve(source, textRows));
+            if (nodes.stream().allMatch(node -> node.resolved != null)) {
+                BitSet rows = new BitSet(source.size());
+                rows.set(0, source.size());
+                nodes.forEach(node -> rows.and(node.resolved));
+                setResolved(rows);
+            }
+        }
+
+        @Override
+        BitSet filter(Scan<T> scan, BitSet candidates) {
+            if (resolved != null) {
+                candidates.and(resolved);
+                return candidates;
+            }
+            for (Node<T> node : ordered(nodes, true)) {
+                if (candidates.isEmpty()) {
+                    break;
+                }
+                candidates = node.filter(scan, candidates);
+                if (candidates == null) {
+                    return null;
+                }
+            }
+            return candidates;
+        }
+
+        @Override
+        double rank(boolean and) {
+            return Double.POSITIVE_INFINITY;
+        }
+    }
+
+    private static class Or<T> extends Node<T> {
+
+        private final List<Node<T>> nodes;
+
+        Or(List<Node<T>> nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        void resolve(List<? extends T> source, Function<String, BitSet> textRows) {
+            nodes.forEach(node -> node.resolve(source, textRows));
+            if (nodes.stream().allMatch(node -> node.resolved != null)) {
+                BitSet rows = new BitSet(source.size());
+                nodes.forEach(node -> rows.or(node.resolved));
+                setResolved(rows);
+            }
+        }
+
+        @Override
+        BitSet filter(Scan<T> scan, BitSet candidates) {
+            if (resolved != null) {
+                candidates.and(resolved);
+                return candidates;
+            }
+            // every node tests only rows that no previous node accepted
+            BitSet result = new BitSet();
+            for (Node<T> node : ordered(nodes, false)) {
+                if (candidates.isEmpty()) {
+                    break;
+                }
+                BitSet matched = node.filter(scan, (BitSet) candidates.clone());
+                if (matched == null) {
+                    return null;
+                }
+                result.or(matched);
+                candidates.andNot(matched);
+            }
+            return result;
+        }
+
+        @Override
+        double rank(boolean and) {
+            return Double.POSITIVE_INFINITY;
+        }
+    }
+
+    private static class Not<T> extends Node<T> {
+
+        private final Node<T> node;
+
+        Not(Node<T> node) {
+            this.node = node;
+        }
+
+        @Override
+        void resolve(List<? extends T> source, Function<String, BitSet> textRows) {
+            node.resolve(source, textRows);
+            if (node.resolved != null) {
+                BitSet rows = new BitSet(source.size());
+                rows.set(0, source.size());
+                rows.andNot(node.resolved);
+                setResolved(rows);
+            }
+        }
+
+        @Override
+        BitSet filter(Scan<T> scan, BitSet candidates) {
+            if (resolved != null) {
+                candidates.and(resolved);
+                return candidates;
+            }
+            BitSet matched = node.filter(scan, (BitSet) candidates.clone());
+            if (matched == null) {
+                return null;
+            }
+            candidates.andNot(matched);
+            return candidates;
+        }
+
+        @Override
+        double rank(boolean and) {
+            // rows rejected by negation are accepted by the term
+            return node.rank(!and);
+        }
+    }
+
+    private abstract static class Term<T> extends Node<T> {
+
+        private final TermStats stats;
+
+        Term(TermStats stats) {
+            this.stats = stats;
+        }
+
+        abstract boolean test(Scan<T> scan, T t);
+
+        @Override
+        BitSet filter(Scan<T> scan, BitSet candidates) {
+            if (resolved != null) {
+                candidates.and(resolved);
+                return candidates;
+            }
+            long start = System.nanoTime();
+            int tested = 0;
+            int passed = 0;
+            for (int row = candidates.nextSetBit(0); row >= 0; row = candidates.nextSetBit(row + 1)) {
+                if (scan.isStale()) {
+                    return null;
+                }
+                tested++;
+                if (test(scan, scan.elements.get(row))) {
+                    passed++;
+                }
+                else {
+                    candidates.clear(row);
+                }
+            }
+            stats.measured(System.nanoTime() - start, tested, passed);
+            return candidates;
+        }
+
+        @Override
+        double rank(boolean and) {
+            return stats.rank(and);
+        }
+    }
+
+    private static class TextTerm<T> extends Term<T> {
+
+        private final String word;
+
+        TextTerm(String word, TermStats stats) {
+            super(stats);
+            this.word = word;
+        }
+
+        @Override
+        void resolve(List<? extends T> source, Function<String, BitSet> textRows) {
+            setResolved(textRows.apply(word));
+        }
+
+        @Override
+        boolean test(Scan<T> scan, T t) {
+            return scan.keys.apply(t).contains(word);
+        }
+    }
+
+    private enum Operator {
+        CONTAINS, EQUALS, GREATER, GREATER_OR_EQUAL, LESS, LESS_OR_EQUAL;
+
+        static Operator of(String text) {
+            switch (text) {
+                case ":":
+                    return CONTAINS;
+                case "=":
+                    return EQUALS;
+                case ">":
+                    return GREATER;
+                case ">=":
+                    return GREATER_OR_EQUAL;
+                case "<":
+                    return LESS;
+                default:
+                    return LESS_OR_EQUAL;
+            }
+        }
+
+        boolean isComparison() {
+            return this != CONTAINS && this != EQUALS;
+        }
+    }
+
+    /**
+     * Term testing getter result of a field. Null results never match. Collection results match if any element does,
+     * except for comparisons. Numbers are compared as numbers if value is a number, other results are compared as
+     * lower cased strings: field:text means result contains the text, field=value means result is equal to the value.
+     */
+    private static class FieldTerm<T> extends Term<T> {
+
+        private final QueryField<T> field;
+        private final Operator operator;
+        private final String value;
+        private final Double number;
+
+        FieldTerm(QueryField<T> field, Operator operator, String value, TermStats stats) {
+            super(stats);
+            this.field = field;
+            this.operator = operator;
+            this.value = value.toLowerCase();
+            this.number = parseOrNull(value);
+        }
+
+        @Override
+        void resolve(List<? extends T> source, Function<String, BitSet> textRows) {
+            if (!field.isIndexed()) {
+                return;
+            }
+            BitSet rows;
+            if (!operator.isComparison()) {
+                rows = field.values.matching(source, this::testValue);
+                rows.andNot(field.values.nullRows(source));
+            }
+            else if (number != null) {
+                double min = operator == Operator.GREATER ? Math.nextUp(number)
+                        : operator == Operator.GREATER_OR_EQUAL ? number
+                        : Double.NEGATIVE_INFINITY;
+                double max = operator == Operator.LESS ? Math.nextDown(number)
+                        : operator == Operator.LESS_OR_EQUAL ? number
+                        : Double.POSITIVE_INFINITY;
+                rows = field.numbers.rows(source, min, max);
+                rows.andNot(field.numbers.nullRows(source));
+            }
+            else {
+                return;
+            }
+            setResolved(rows);
+        }
+
+        @Override
+        boolean test(Scan<T> scan, T t) {
+            return testValue(SearchMatchers.unwrap(field.getter.apply(t)));
+        }
+
+        private boolean testValue(Object result) {
+            if (result == null) {
+                return false;
+            }
+            if (result instanceof Collection) {
+                if (operator.isComparison()) {
+                    return false;
+                }
+                for (Object element : (Collection<?>) result) {
+                    if (!(element instanceof Collection) && testValue(element)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            if (result instanceof Number && (number != null || operator.isComparison())) {
+                double resultNumber = ((Number) result).doubleValue();
+                if (number == null || Double.isNaN(resultNumber)) {
+                    return false;
+                }
+                // primitive comparison, same as in the range index, so -0.0 is equal to 0.0
+                return compare(resultNumber < number ? -1 : resultNumber > number ? 1 : 0);
+            }
+            if (number != null && operator.isComparison()) {
+                // number bound is compared with numbers only, same as in the range index
+                return false;
+            }
+            String string = result.toString().toLowerCase();
+            switch (operator) {
+                case CONTAINS:
+                    return string.contains(value);
+                case EQUALS:
+                    return string.equals(value);
+                default:
+                    return compare(string.compareTo(value));
+            }
+        }
+
+        private boolean compare(int comparison) {
+            switch (operator) {
+                case GREATER:
+                    return comparison > 0;
+                case GREATER_OR_EQUAL:
+                    return comparison >= 0;
+                case LESS:
+                    return comparison < 0;
+                case LESS_OR_EQUAL:
+                    return comparison <= 0;
+                default:
+                    return comparison == 0;
+            }
+        }
+
+        private static Double parseOrNull(String text) {
+            try {
+                return Double.valueOf(text);
+            }
+            catch (NumberFormatException exception) {
+                return null;
+            }
+        }
+    }
+
+    private enum TokenType {
+        WORD, OPEN, CLOSE, NOT
+    }
+
+    private static class Token {
+
+        private final TokenType type;
+        private final String text;
+        // position in text where quoted part starts, -1 if token is not quoted
+        private final int quoteStart;
+
+        Token(TokenType type, String text, int quoteStart) {
+            this.type = type;
+            this.text = text;
+            this.quoteStart = quoteStart;
+        }
+
+        boolean isKeyword(String keyword) {
+            return type == TokenType.WORD && quoteStart < 0 && text.equals(keyword);
+        }
+    }
+
+    private static List<Token> tokens(String text) {
+        List<Token> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            }
+            else if (c == '(' || c == ')') {
+                tokens.add(new Token(c == '(' ? TokenType.OPEN : TokenType.CLOSE, String.valueOf(c), -1));
+                i++;
+            }
+            // minus before a digit is a negative number, not a NOT
+            else if (c == '-' && i + 1 < text.length() && !Character.isWhitespace(text.charAt(i + 1))
+                    && !Character.isDigit(text.charAt(i + 1))) {
+                tokens.add(new Token(TokenType.NOT, "-", -1));
+                i++;
+            }
+            else {
+                StringBuilder word = new StringBuilder();
+                int quoteStart = -1;
+                boolean quoted = false;
+                while (i < text.length()) {
+                    c = text.charAt(i);
+                    if (c == '"') {
+                        quoted = !quoted;
+                        if (quoteStart < 0) {
+                            quoteStart = word.length();
+                        }
+                    }
+                    else if (!quoted && (Character.isWhitespace(c) || c == '(' || c == ')')) {
+                        break;
+                    }
+                    else {
+                        word.append(c);
+                    }
+                    i++;
+                }
+                tokens.add(new Token(TokenType.WORD, word.toString(), quoteStart));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Recursive descent parser. Malformed queries are parsed leniently: missing closing parentheses are implied,
+     * unexpected closing parentheses and operators without operands are ignored.
+     */
+    private static class Parser<T> {
+
+        private final List<Token> tokens;
+        private final Map<String, QueryField<T>> fields;
+        private final Map<String, TermStats> stats;
+        private int position;
+
+        Parser(List<Token> tokens, Map<String, QueryField<T>> fields, Map<String, TermStats> stats) {
+            this.tokens = tokens;
+            this.fields = fields;
+            this.stats = stats;
+        }
+
+        /**
+         * @return root node or null if query has no terms.
+         */
+        Node<T> parse() {
+            List<Node<T>> nodes = new ArrayList<>();
+            while (position < tokens.size()) {
+                if (tokens.get(position).type == TokenType.CLOSE) {
+                    position++;
+                    continue;
+                }
+                Node<T> node = or();
+                if (node != null) {
+                    nodes.add(node);
+                }
+            }
+            return group(nodes, And::new);
+        }
+
+        private Node<T> or() {
+            List<Node<T>> nodes = new ArrayList<>();
+            Node<T> first = and();
+            if (first != null) {
+                nodes.add(first);
+            }
+            while (position < tokens.size() && tokens.get(position).isKeyword("OR")) {
+                position++;
+                Node<T> node = and();
+                if (node != null) {
+                    nodes.add(node);
+                }
+            }
+            return group(nodes, Or::new);
+        }
+
+        private Node<T> and() {
+            List<Node<T>> nodes = new ArrayList<>();
+            while (position < tokens.size()
+                    && tokens.get(position).type != TokenType.CLOSE
+                    && !tokens.get(position).isKeyword("OR")) {
+                if (tokens.get(position).isKeyword("AND")) {
+                    position++;
+                    continue;
+                }
+                Node<T> node = unary();
+                if (node != null) {
+                    nodes.add(node);
+                }
+            }
+            return group(nodes, And::new);
+        }
+
+        private Node<T> unary() {
+            Token token = tokens.get(position++);
+            if (token.type == TokenType.NOT || token.isKeyword("NOT")) {
+                if (position >= tokens.size()
+                        || tokens.get(position).type == TokenType.CLOSE
+                        || tokens.get(position).isKeyword("OR")
+                        || tokens.get(position).isKeyword("AND")) {
+                    return null;
+                }
+                Node<T> node = unary();
+                return node != null ? new Not<>(node) : null;
+            }
+            if (token.type == TokenType.OPEN) {
+                Node<T> node = or();
+                if (position < tokens.size() && tokens.get(position).type == TokenType.CLOSE) {
+                    position++;
+                }
+                return node;
+            }
+            return term(token);
+        }
+
+        private Node<T> term(Token token) {
+            Matcher matcher = FIELD_TERM.matcher(token.text);
+            // field name and operator must not be quoted
+            if (matcher.matches() && !matcher.group(3).isEmpty()
+                    && (token.quoteStart < 0 || token.quoteStart >= matcher.end(2))) {
+                QueryField<T> field = fields.get(matcher.group(1).toLowerCase());
+                if (field != null) {
+                    String key = field.name + matcher.group(2) + matcher.group(3).toLowerCase();
+                    return new FieldTerm<>(field, Operator.of(matcher.group(2)), matcher.group(3),
+                            stats.computeIfAbsent(key, k -> new TermStats()));
+                }
+            }
+            String word = token.text.toLowerCase();
+            return new TextTerm<>(word, stats.computeIfAbsent("\u0000" + word, k -> new TermStats()));
+        }
+
+        private static <T> Node<T> group(List<Node<T>> nodes, Function<List<Node<T>>, Node<T>> constructor) {
+            if (nodes.isEmpty()) {
+                return null;
+            }
+            return nodes.size() == 1 ? nodes.get(0) : constructor.apply(nodes);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package ru.rdude.fxlib.panes;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.TransformationList;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Filtered view of the source list that shows the rows computed by SearchPane.
+ * Unlike FilteredList it does not test elements itself. The search pane decides which rows are visible
+ * (by scanning or by using indexes) and passes them as a set of source rows.
+ * Elements are copied so the view stays consistent when source is changed until the next search pass.
+ * Rows are shown in source order, or in order of ranking if they are set with setRankedRows.
+ * Single rows shown or hidden in reactive mode are inserted and removed in place: row is found with binary search
+ * and following rows are shifted, without copying the whole result.
+ *
+ * @param <T> type of elements.
+ */
+class SearchResultList<T> extends TransformationList<T, T> {
+
+    private final Consumer<ListChangeListener.Change<? extends T>> sourceChangeHandler;
+    private IntList rows = new IntList();
+    private List<T> elements = new ArrayList<>();
+    // false if rows are in ranking order instead of source order
+    private boolean sorted = true;
+    private boolean disposed;
+
+    SearchResultList(ObservableList<T> source, Consumer<ListChangeListener.Change<? extends T>> sourceChangeHandler) {
+        super(source);
+        this.sourceChangeHandler = sourceChangeHandler;
+    }
+
+    /**
+     * Replace visible rows.
+     *
+     * @param visible source rows that must be shown.
+     */
+    void setRows(BitSet visible) {
+        setRows(visible.stream().toArray(), true);
+    }
+
+    /**
+     * Replace visible rows with rows in given order.
+     *
+     * @param ordered source rows that must be shown in order they must be shown.
+     */
+    void setRankedRows(int[] ordered) {
+        setRows(ordered, false);
+    }
+
+    private void setRows(int[] newRows, boolean newSorted) {
+        List<T> newElements = new ArrayList<>(newRows.length);
+        List<? extends T> source = getSource();
+        for (int row : newRows) {
+            newElements.add(source.get(row));
+        }
+        sorted = newSorted;
+        if (rows.equalsArray(newRows) && elements.equals(newElements)) {
+            return;
+        }
+        // rows appended after shown rows are reported as added, so list view keeps scroll position and selection
+        if (isPrefix(newRows, newElements)) {
+            int from = rows.size();
+            rows = new IntList(newRows);
+            elements = newElements;
+            beginChange();
+            nextAdd(from, newRows.length);
+            endChange();
+            return;
+        }
+        List<T> removed = elements;
+        rows = new IntList(newRows);
+        elements = newElements;
+        beginChange();
+        if (!removed.isEmpty()) {
+            nextRemove(0, removed);
+        }
+        if (newRows.length > 0) {
+            nextAdd(0, newRows.length);
+        }
+        endChange();
+    }
+
+    /**
+     * Show or hide a single source row. If row is already shown and stays visible, update change is fired
+     * so list view redraws the element. If rows are ranked, new row is shown last and row is found
+     * by linear search, ranked results are limited so it stays cheap.
+     *
+     * @param row     source row.
+     * @param visible true if row must be shown.
+     */
+    void setRowVisible(int row, boolean visible) {
+        int position = position(row);
+        if (!sorted && position < 0) {
+            position = -rows.size() - 1;
+        }
+        if (position < 0 && !visible) {
+            return;
+        }
+        beginChange();
+        if (position >= 0 && visible) {
+            nextUpdate(position);
+        }
+        else if (position >= 0) {
+            rows.remove(position);
+            nextRemove(position, elements.remove(position));
+        }
+        else if (visible) {
+            position = -position - 1;
+            rows.insert(position, row);
+            elements.add(position, getSource().get(row));
+            nextAdd(position, position + 1);
+        }
+        endChange();
+    }
+
+    /**
+     * Stop passing source changes to the handler. Source keeps only weak listener to this list,
+     * so list can still receive changes until garbage collected.
+     */
+    void dispose() {
+        disposed = true;
+    }
+
+    @Override
+    protected void sourceChanged(ListChangeListener.Change<? extends T> change) {
+        if (!disposed) {
+            sourceChangeHandler.accept(change);
+        }
+    }
+
+    @Override
+    public int getSourceIndex(int index) {
+        if (index < 0 || index >= rows.size()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return rows.get(index);
+    }
+
+    @Override
+    public int getViewIndex(int index) {
+        int viewIndex = position(index);
+        return viewIndex >= 0 ? viewIndex : -1;
+    }
+
+    /**
+     * @return position of the row or negative value if row is not shown, same as Arrays.binarySearch.
+     */
+    private int position(int row) {
+        return sorted ? rows.binarySearch(row) : rows.indexOf(row);
+    }
+
+    @Override
+    public T get(int index) {
+        return elements.get(index);
+    }
+
+    @Override
+    public int size() {
+        return elements.size();
+    }
+
+    private boolean isPrefix(int[] newRows, List<T> newElements) {
+        if (newRows.length <= rows.size()) {
+            return false;
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i) != newRows[i] || elements.get(i) != newElements.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,100 @@
+package ru.rdude.fxlib.panes;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Base of the indexes that store data by slots of RowSlots, so rows removed, inserted or moved in the source list
+ * do not make index recompute data of other rows. Rows which data changed are marked as stale and checked
+ * separately by queries. Index is rebuilt by the next query when it is invalidated or when too many slots
+ * are stale or dead.
+ *
+ * @param <T> type of indexed elements.
+ */
+abstract class SlotIndex<T> implements OptionIndex<T> {
+
+    // index is rebuilt when one of this number of slots is stale or dead
+    private static final int MAX_OUTDATED_SHARE = 8;
+
+    final RowSlots slots = new RowSlots();
+    // slots which data changed after they were indexed
+    final BitSet stale = new BitSet();
+    private boolean dirty = true;
+
+    @Override
+    public void invalidate() {
+        dirty = true;
+    }
+
+    @Override
+    public void insert(int from, List<? extends T> added) {
+        if (dirty) {
+            return;
+        }
+        addSlots(slots.insert(from, added.size()), added);
+    }
+
+    @Override
+    public void remove(int from, int count) {
+        if (dirty) {
+            return;
+        }
+        slots.remove(from, count);
+        checkOutdated();
+    }
+
+    @Override
+    public void permute(int from, int[] permutation) {
+        if (!dirty) {
+            slots.permute(from, permutation);
+        }
+    }
+
+    @Override
+    public void update(int row, T t) {
+        if (dirty || row >= slots.rows()) {
+            return;
+        }
+        int slot = slots.slot(row);
+        updateSlot(slot, t);
+        stale.set(slot);
+        checkOutdated();
+    }
+
+    /**
+     * Rebuild index if it is outdated. Must be called by every query before reading index data.
+     */
+    void ensureBuilt(List<? extends T> source) {
+        if (!dirty) {
+            return;
+        }
+        clear();
+        stale.clear();
+        slots.reset();
+        dirty = false;
+        addSlots(slots.insert(0, source.size()), source);
+    }
+
+    /**
+     * Index elements in new slots.
+     *
+     * @param first slot of the first element, slots of the next elements follow it.
+     */
+    abstract void addSlots(int first, List<? extends T> added);
+
+    /**
+     * Store data of the changed element. Slot is marked as stale after this method.
+     */
+    abstract void updateSlot(int slot, T t);
+
+    /**
+     * Remove all index data.
+     */
+    abstract void clear();
+
+    private void checkOutdated() {
+        if ((stale.cardinality() + slots.dead()) * MAX_OUTDATED_SHARE > slots.slots()) {
+            dirty = true;
+        }
+    }
+}
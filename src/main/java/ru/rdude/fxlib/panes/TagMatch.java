@@ -0,0 +1,15 @@
+package ru.rdude.fxlib.panes;
+
+/**
+ * How collection returned by the function linked to SelectorContainer is matched with selected items.
+ */
+public enum TagMatch {
+    /**
+     * Collection must contain all selected items.
+     */
+    ALL,
+    /**
+     * Collection must contain at least one of selected items.
+     */
+    ANY
+}
@@ -0,0 +1,90 @@
+package ru.rdude.fxlib.panes;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Results of the recent text field queries.
+ * If new query contains one of the cached queries, every element matching new query also matches cached one,
+ * so only rows of the cached result need to be checked. This makes typing one more character cost
+ * proportional to the number of previous matches and makes backspace a cache hit.
+ * Every result remembers how many rows it covers, so results stay valid when rows are appended to the list,
+ * appended rows are just checked in addition to the cached ones.
+ */
+class TextQueryCache {
+
+    private static final int MAX_SIZE = 32;
+
+    private final Map<String, Result> results = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Result> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    /**
+     * @param size number of rows in the list.
+     * @return copy of the cached result of exactly this query covering all rows or null.
+     */
+    BitSet get(String query, int size) {
+        Result result = results.get(query);
+        return result != null && result.covered == size ? (BitSet) result.rows.clone() : null;
+    }
+
+    /**
+     * @param size number of rows in the list.
+     * @return rows that can match the query: copy of the smallest cached result of a query contained
+     * in the given query with rows it does not cover, or null if there is no such query.
+     */
+    BitSet base(String query, int size) {
+        Result base = null;
+        for (Map.Entry<String, Result> entry : results.entrySet()) {
+            Result result = entry.getValue();
+            if (query.contains(entry.getKey()) && result.covered <= size
+                    && (base == null || result.rows.cardinality() + size - result.covered
+                    < base.rows.cardinality() + size - base.covered)) {
+                base = result;
+            }
+        }
+        if (base == null) {
+            return null;
+        }
+        BitSet rows = (BitSet) base.rows.clone();
+        rows.set(base.covered, size);
+        return rows;
+    }
+
+    /**
+     * @param size number of rows the result covers.
+     */
+    void put(String query, BitSet rows, int size) {
+        results.put(query, new Result((BitSet) rows.clone(), size));
+    }
+
+    /**
+     * Update cached results for a single row which search key changed.
+     */
+    void update(int row, String key) {
+        results.forEach((query, result) -> {
+            if (row < result.covered) {
+                result.rows.set(row, key.contains(query));
+            }
+        });
+    }
+
+    void clear() {
+        results.clear();
+    }
+
+    private static class Result {
+
+        private final BitSet rows;
+        private final int covered;
+
+        Result(BitSet rows, int covered) {
+            this.rows = rows;
+            this.covered = covered;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package ru.rdude.fxlib.panes;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Trigram inverted index over normalized search keys of the list elements.
+ * Every row of the source list has one key (lower cased outputs of all search functions) stored by index slot.
+ * Each trigram of a key points to the slots containing it, so a query only verifies rows
+ * that contain every trigram of the query instead of scanning the whole list.
+ * Queries shorter than a trigram are verified against stored keys without calling search functions.
+ * When a key of a single row changes, row is marked as stale instead of being removed from the trigram lists,
+ * stale rows are always verified. Index is rebuilt when too many rows are stale or removed.
+ *
+ * @param <T> type of indexed elements.
+ */
+class TextSearchIndex<T> extends SlotIndex<T> {
+
+    private static final int GRAM = 3;
+
+    private final Function<T, String> keyFunction;
+    private final Map<Long, IntList> postings = new HashMap<>();
+    private final List<String> keys = new ArrayList<>();
+
+    TextSearchIndex(Function<T, String> keyFunction) {
+        this.keyFunction = keyFunction;
+    }
+
+    @Override
+    void addSlots(int first, List<? extends T> added) {
+        int slot = first;
+        for (T t : added) {
+            addSlot(slot++, keyFunction.apply(t));
+        }
+    }
+
+    @Override
+    void updateSlot(int slot, T t) {
+        keys.set(slot, keyFunction.apply(t));
+    }
+
+    @Override
+    void clear() {
+        postings.clear();
+        keys.clear();
+    }
+
+    /**
+     * Find rows which keys contain the needle.
+     *
+     * @param source source list this index is built on.
+     * @param needle lower cased search text.
+     * @param within if not null, only these rows are checked.
+     * @return set of matching rows.
+     */
+    BitSet search(List<? extends T> source, String needle, BitSet within) {
+        ensureBuilt(source);
+        BitSet withinSlots = within != null ? slots.toSlots(within) : null;
+        BitSet result = new BitSet(keys.size());
+        if (needle.length() < GRAM) {
+            int slot = withinSlots != null ? withinSlots.nextSetBit(0) : 0;
+            while (slot >= 0 && slot < keys.size()) {
+                if (keys.get(slot).contains(needle)) {
+                    result.set(slot);
+                }
+                slot = withinSlots != null ? withinSlots.nextSetBit(slot + 1) : slot + 1;
+            }
+            return slots.toRows(result);
+        }
+        IntList candidates = candidates(needle);
+        for (int i = 0; i < candidates.size(); i++) {
+            int slot = candidates.get(i);
+            if ((withinSlots == null || withinSlots.get(slot)) && keys.get(slot).contains(needle)) {
+                result.set(slot);
+            }
+        }
+        for (int slot = stale.nextSetBit(0); slot >= 0; slot = stale.nextSetBit(slot + 1)) {
+            if ((withinSlots == null || withinSlots.get(slot)) && keys.get(slot).contains(needle)) {
+                result.set(slot);
+            }
+            else {
+                result.clear(slot);
+            }
+        }
+        return slots.toRows(result);
+    }
+
+    private IntList candidates(String needle) {
+        List<IntList> lists = new ArrayList<>();
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= needle.length(); i++) {
+            long gram = gram(needle, i);
+            if (grams.add(gram)) {
+                IntList list = postings.get(gram);
+                if (list == null) {
+                    return new IntList();
+                }
+                lists.add(list);
+            }
+        }
+        lists.sort(Comparator.comparingInt(IntList::size));
+        IntList smallest = lists.get(0);
+        IntList result = new IntList(smallest.size());
+        for (int i = 0; i < smallest.size(); i++) {
+            int slot = smallest.get(i);
+            boolean inAll = true;
+            for (int j = 1; j < lists.size() && inAll; j++) {
+                inAll = lists.get(j).contains(slot);
+            }
+            if (inAll) {
+                result.add(slot);
+            }
+        }
+        return result;
+    }
+
+    private void addSlot(int slot, String key) {
+        keys.add(key);
+        for (int i = 0; i + GRAM <= key.length(); i++) {
+            IntList list = postings.computeIfAbsent(gram(key, i), g -> new IntList());
+            // slots are added in ascending order so repeated trigram of the same key is always the last one
+            if (list.isEmpty() || list.last() != slot) {
+                list.add(slot);
+            }
+        }
+    }
+
+    private static long gram(String s, int from) {
+        return ((long) s.charAt(from) << 32) | ((long) s.charAt(from + 1) << 16) | s.charAt(from + 2);
+    }
+}
@@ -0,0 +1,80 @@
+package ru.rdude.fxlib.panes;
+
+import java.util.Arrays;
+
+/**
+ * Bounded min heap of the best scored rows. Score and row are packed into a single long, so rows with
+ * equal scores are ordered by row number and heap works without boxing. Offering n rows costs O(n log k).
+ */
+class TopRows {
+
+    private final long[] heap;
+    private int size;
+
+    TopRows(int limit) {
+        heap = new long[Math.max(limit, 0)];
+    }
+
+    /**
+     * @param row   source row.
+     * @param score not negative score, greater is better.
+     */
+    void offer(int row, int score) {
+        if (heap.length == 0) {
+            return;
+        }
+        // greater packed value is better: higher score first, then lower row
+        long value = ((long) score << 32) | (0xFFFFFFFFL - row);
+        if (size < heap.length) {
+            heap[size] = value;
+            siftUp(size++);
+        }
+        else if (value > heap[0]) {
+            heap[0] = value;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * @return rows from the best to the worst.
+     */
+    int[] toArray() {
+        long[] values = Arrays.copyOf(heap, size);
+        Arrays.sort(values);
+        int[] rows = new int[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = (int) (0xFFFFFFFFL - (values[size - 1 - i] & 0xFFFFFFFFL));
+        }
+        return rows;
+    }
+
+    private void siftUp(int index) {
+        long value = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= value) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = value;
+    }
+
+    private void siftDown(int index) {
+        long value = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (heap[child] >= value) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+}
@@ -0,0 +1,169 @@
+package ru.rdude.fxlib.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.*;
+
+/**
+ * Generates SearchPaneLinker for every controller marked with AutoLinkControls annotation.
+ * Generated linker reads controller fields directly and uses method references to the element getters,
+ * so SearchPane does not scan classes and does not call Method.invoke for every element.
+ * Fields and getters are matched by the same rules as in the reflective linking of SearchPane,
+ * so controller is linked the same way whether linker is generated or not.
+ */
+@SupportedAnnotationTypes(AutoLinkControlsProcessor.ANNOTATION)
+public class AutoLinkControlsProcessor extends AbstractProcessor {
+
+    static final String ANNOTATION = "ru.rdude.fxlib.panes.AutoLinkControls";
+    private static final String LINKER = "ru.rdude.fxlib.panes.SearchPaneLinker";
+    private static final String CONTROL = "javafx.scene.control.Control";
+    private static final String SUFFIX = "SearchLinker";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement annotation = processingEnv.getElementUtils().getTypeElement(ANNOTATION);
+        if (annotation == null) {
+            return false;
+        }
+        for (TypeElement controller : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(annotation))) {
+            TypeElement elementType = elementType(controller, annotation);
+            if (elementType == null) {
+                continue;
+            }
+            try {
+                generate(controller, elementType);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Can not generate search linker: " + e.getMessage(), controller);
+            }
+        }
+        return true;
+    }
+
+    private TypeElement elementType(TypeElement controller, TypeElement annotation) {
+        for (AnnotationMirror mirror : controller.getAnnotationMirrors()) {
+            if (!mirror.getAnnotationType().asElement().equals(annotation)) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals("value")
+                        && entry.getValue().getValue() instanceof DeclaredType) {
+                    TypeElement type = (TypeElement) ((DeclaredType) entry.getValue().getValue()).asElement();
+                    if (!type.getTypeParameters().isEmpty()) {
+                        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                                "Generic element classes can not be linked", controller);
+                        return null;
+                    }
+                    return type;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void generate(TypeElement controller, TypeElement elementType) throws IOException {
+        String packageName = processingEnv.getElementUtils().getPackageOf(controller).getQualifiedName().toString();
+        String linkerName = flatName(controller) + SUFFIX;
+        String controllerName = controller.getQualifiedName().toString();
+        String elementName = elementType.getQualifiedName().toString();
+
+        Map<String, String> links = new LinkedHashMap<>();
+        Map<String, VariableElement> fields = controlFields(controller);
+        boolean samePackage = processingEnv.getElementUtils().getPackageOf(elementType).getQualifiedName().contentEquals(packageName);
+        for (ExecutableElement getter : getters(elementType, samePackage)) {
+            String name = getter.getSimpleName().toString().toLowerCase().replaceFirst("^(get|is)", "");
+            VariableElement field = fields.get(name);
+            if (field != null) {
+                links.put(field.getSimpleName().toString(), getter.getSimpleName().toString());
+            }
+        }
+
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(
+                packageName.isEmpty() ? linkerName : packageName + "." + linkerName, controller);
+        try (PrintWriter out = new PrintWriter(file.openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("// generated by " + getClass().getName() + " from " + controllerName);
+            out.println("public final class " + linkerName + " implements " + LINKER + "<" + controllerName + ", " + elementName + "> {");
+            out.println();
+            out.println("    @Override");
+            out.println("    public Class<" + elementName + "> elementClass() {");
+            out.println("        return " + elementName + ".class;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public java.util.Map<" + CONTROL + ", java.util.function.Function<" + elementName + ", ?>> link("
+                    + controllerName + " controller) {");
+            out.println("        java.util.Map<" + CONTROL + ", java.util.function.Function<" + elementName + ", ?>> links = new java.util.LinkedHashMap<>();");
+            links.forEach((field, getter) -> out.println("        links.put(controller." + field + ", " + elementName + "::" + getter + ");"));
+            out.println("        return links;");
+            out.println("    }");
+            out.println("}");
+        }
+    }
+
+    /**
+     * @return not private fields of the controller which type is a Control, by lower cased name.
+     */
+    private Map<String, VariableElement> controlFields(TypeElement controller) {
+        TypeMirror control = processingEnv.getElementUtils().getTypeElement(CONTROL).asType();
+        Map<String, VariableElement> fields = new HashMap<>();
+        for (VariableElement field : ElementFilter.fieldsIn(controller.getEnclosedElements())) {
+            if (processingEnv.getTypeUtils().isAssignable(processingEnv.getTypeUtils().erasure(field.asType()), control)) {
+                if (field.getModifiers().contains(Modifier.PRIVATE)) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                            "Private control field is not linked", field);
+                }
+                else {
+                    fields.put(field.getSimpleName().toString().toLowerCase(), field);
+                }
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * @return methods of the element class without parameters that return a value and can be called from
+     * the linker package.
+     */
+    private List<ExecutableElement> getters(TypeElement elementType, boolean samePackage) {
+        List<ExecutableElement> getters = new ArrayList<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(elementType.getEnclosedElements())) {
+            if (method.getParameters().isEmpty()
+                    && method.getReturnType().getKind() != TypeKind.VOID
+                    && (samePackage ? !method.getModifiers().contains(Modifier.PRIVATE) : method.getModifiers().contains(Modifier.PUBLIC))
+                    && !method.getModifiers().contains(Modifier.STATIC)) {
+                getters.add(method);
+            }
+        }
+        return getters;
+    }
+
+    private static String flatName(TypeElement type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        Element enclosing = type.getEnclosingElement();
+        while (enclosing instanceof TypeElement) {
+            name.insert(0, ((TypeElement) enclosing).getSimpleName() + "_");
+            enclosing = enclosing.getEnclosingElement();
+        }
+        return name.toString();
+    }
+}
@@ -13,9 +13,11 @@ import javafx.scene.control.TextField;
 import org.intellij.lang.annotations.RegExp;
 import org.jetbrains.annotations.NotNull;
 import utils.FunctionRawOrProperty;
+import utils.SearchKeyCache;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 
@@ -34,6 +36,9 @@ public class AutocompletionTextField<T> extends TextField {
     private final SimpleObjectProperty<FunctionRawOrProperty<T, String>> elementDescriptionFunction = new SimpleObjectProperty<>();
     private final SimpleObjectProperty<Type> type = new SimpleObjectProperty<>(Type.FULL_STRING_CONTAINS);
     private final SimpleObjectProperty<String> wordsDelimiter = new SimpleObjectProperty<>("\\s");
+    // lower cased element names
+    private final SearchKeyCache<T> searchKeyCache = new SearchKeyCache<>(List.of(elementNameFunction.get()));
+    private final ListChangeListener<T> elementsListener = searchKeyCache::listChanged;
 
     public AutocompletionTextField() {
         initListeners();
@@ -118,6 +123,17 @@ public class AutocompletionTextField<T> extends TextField {
     }
 
     private void initListeners() {
+        elementNameFunction.addListener((observableValue, oldV, newV) -> searchKeyCache.setFunctions(List.of(newV)));
+        elements.addListener((observableValue, oldV, newV) -> {
+            if (oldV != null) {
+                oldV.removeListener(elementsListener);
+            }
+            if (newV != null) {
+                newV.addListener(elementsListener);
+            }
+            searchKeyCache.clear();
+        });
+        elements.get().addListener(elementsListener);
         filteredElements.addListener((observableValue, oldV, newV) -> {
             newV.addListener((ListChangeListener<T>) change -> {
                 ContextMenu popup = this.popup.get();
@@ -140,10 +156,12 @@ public class AutocompletionTextField<T> extends TextField {
                 return;
             }
             if (type.get().equals(Type.FULL_STRING_CONTAINS)) {
-                filteredElements.get().setPredicate(t -> elementNameFunction.get().apply(t).toLowerCase().contains(getText().toLowerCase()));
+                final String text = getText().toLowerCase();
+                filteredElements.get().setPredicate(t -> searchKeyCache.get(t).contains(text));
             }
             else if (type.get().equals(Type.FULL_STRING_STARTS_WITH)) {
-                filteredElements.get().setPredicate(t -> elementNameFunction.get().apply(t).toLowerCase().startsWith(getText().toLowerCase()));
+                final String text = getText().toLowerCase();
+                filteredElements.get().setPredicate(t -> searchKeyCache.get(t).startsWith(text));
             }
             else if (type.get().equals(Type.WORDS)) {
                 typed.set(true);
@@ -157,8 +175,8 @@ public class AutocompletionTextField<T> extends TextField {
                     popup.get().hide();
                     return;
                 }
-                String word = newV.substring(start, end);
-                filteredElements.get().setPredicate(t -> elementNameFunction.get().apply(t).toLowerCase().contains(word.toLowerCase()));
+                final String word = newV.substring(start, end).toLowerCase();
+                filteredElements.get().setPredicate(t -> searchKeyCache.get(t).contains(word));
             }
             if (filteredElements.get().size() > 0 && isFocused()) {
                 popup.get().show(AutocompletionTextField.this, Side.BOTTOM, 0, 0);
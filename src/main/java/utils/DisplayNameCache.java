@@ -0,0 +1,73 @@
+package utils;
+
+import javafx.beans.Observable;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.ListChangeListener;
+
+import java.util.List;
+
+/**
+ * Bounded cache of display names of elements, elements are compared by identity.
+ * Least recently used names are removed when cache holds more names than its maximum size.
+ * Cache with zero maximum size (default) does not keep names and calls name function every time.
+ * Name of the element is removed from cache when element is removed from the list or updated
+ * (listChanged method should be called from the list listener), or when observable value returned by
+ * property name function changes.
+ * <p>
+ * Names returned by property function are cached only when requested on JavaFX thread.
+ *
+ * @param <T> type of elements.
+ */
+public class DisplayNameCache<T> {
+
+    private final ElementCache<T, String> names = new ElementCache<>(name -> 1L);
+    private FunctionRawOrProperty<T, String> function;
+
+    public DisplayNameCache(FunctionRawOrProperty<T, String> function) {
+        this.function = function;
+    }
+
+    public void setFunction(FunctionRawOrProperty<T, String> function) {
+        this.function = function;
+        names.clear();
+    }
+
+    /**
+     * @param maxSize maximum number of cached names, 0 to disable caching.
+     */
+    public void setMaxSize(int maxSize) {
+        names.setBudget(maxSize);
+    }
+
+    public int getMaxSize() {
+        return (int) names.getBudget();
+    }
+
+    public String get(T t) {
+        return names.getObserved(t, this::computeName);
+    }
+
+    public void invalidate(T t) {
+        names.invalidate(t);
+    }
+
+    public void clear() {
+        names.clear();
+    }
+
+    /**
+     * Remove names of removed and updated elements. Change is reset after this method so it can be read again.
+     */
+    public void listChanged(ListChangeListener.Change<? extends T> change) {
+        names.listChanged(change);
+    }
+
+    private String computeName(T t, List<Observable> observables) {
+        if (!function.isProperty()) {
+            return function.apply(t);
+        }
+        ObservableValue<String> observable = function.observable(t);
+        observables.add(observable);
+        return observable.getValue();
+    }
+}
@@ -0,0 +1,302 @@
+package utils;
+
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.beans.WeakInvalidationListener;
+import javafx.collections.ListChangeListener;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Cache of values computed for elements, elements are compared by identity.
+ * Value of the element is removed when element is removed from the list or updated (listChanged method should be
+ * called from the list listener), when one of the observables the value was computed from changes, or explicitly.
+ * <p>
+ * Unbounded cache can be read and filled from any thread without locking. Values computed while cache was
+ * cleared or invalidated are not stored.
+ * Bounded cache gives every value a weight and removes least recently used values while total weight is above
+ * the budget. It is locked on every call, so it is meant to be used from one thread. Bounded cache with zero budget
+ * does not keep values.
+ * <p>
+ * Values computed from observables are cached only when computed on JavaFX thread, because cache listens to
+ * the observables. On other threads such values are computed every time.
+ *
+ * @param <T> type of elements.
+ * @param <V> type of cached values.
+ */
+public class ElementCache<T, V> {
+
+    // null for unbounded cache
+    private final ToLongFunction<V> weigher;
+    private final Map<Key, Entry> entries;
+    // changed by every invalidation, value computed during invalidation may be outdated
+    private final AtomicInteger version = new AtomicInteger();
+    private volatile long budget;
+    private long weight;
+    private volatile Consumer<T> invalidationListener;
+
+    /**
+     * Create unbounded cache.
+     */
+    public ElementCache() {
+        this.weigher = null;
+        this.entries = new ConcurrentHashMap<>();
+        this.budget = Long.MAX_VALUE;
+    }
+
+    /**
+     * Create bounded cache with zero budget.
+     *
+     * @param weigher function returning weight of the value.
+     */
+    public ElementCache(ToLongFunction<V> weigher) {
+        this.weigher = weigher;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public void setBudget(long budget) {
+        if (weigher == null) {
+            throw new IllegalStateException("Cache is not bounded");
+        }
+        if (budget < 0) {
+            throw new IllegalArgumentException("Budget must not be negative");
+        }
+        synchronized (this) {
+            this.budget = budget;
+            trim();
+        }
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    public boolean isEnabled() {
+        return budget > 0;
+    }
+
+    /**
+     * Set listener called after value of the element is removed because one of its observables changed.
+     * Listener is called on the thread observable changed on.
+     */
+    public void setInvalidationListener(Consumer<T> listener) {
+        this.invalidationListener = listener;
+    }
+
+    public V get(T t, Function<T, V> function) {
+        return getObserved(t, (element, observables) -> function.apply(element));
+    }
+
+    /**
+     * @param function computes value of the element and adds observables the value depends on to the list.
+     */
+    public V getObserved(T t, BiFunction<T, List<Observable>, V> function) {
+        if (budget == 0) {
+            return function.apply(t, new ArrayList<>());
+        }
+        Key key = new Key(t);
+        Entry entry = find(key);
+        if (entry != null) {
+            return entry.value;
+        }
+        int computedVersion = version.get();
+        List<Observable> observables = new ArrayList<>();
+        V value = function.apply(t, observables);
+        if (observables.isEmpty() || Platform.isFxApplicationThread()) {
+            store(key, new Entry(t, value, observables), computedVersion);
+        }
+        return value;
+    }
+
+    /**
+     * Compute value of the element if it is not cached. Does not change order of already cached values.
+     */
+    public void prefetch(T t, Function<T, V> function) {
+        if (budget == 0) {
+            return;
+        }
+        Key key = new Key(t);
+        boolean cached;
+        if (weigher == null) {
+            cached = entries.containsKey(key);
+        }
+        else {
+            synchronized (this) {
+                cached = entries.containsKey(key);
+            }
+        }
+        if (!cached) {
+            int computedVersion = version.get();
+            store(key, new Entry(t, function.apply(t), List.of()), computedVersion);
+        }
+    }
+
+    public void invalidate(T t) {
+        version.incrementAndGet();
+        Key key = new Key(t);
+        Entry entry;
+        if (weigher == null) {
+            entry = entries.remove(key);
+        }
+        else {
+            synchronized (this) {
+                entry = entries.remove(key);
+                if (entry != null) {
+                    weight -= entry.weight;
+                }
+            }
+        }
+        if (entry != null) {
+            entry.stopListening();
+        }
+    }
+
+    public void clear() {
+        version.incrementAndGet();
+        List<Entry> removed;
+        if (weigher == null) {
+            removed = new ArrayList<>(entries.values());
+            entries.clear();
+        }
+        else {
+            synchronized (this) {
+                removed = new ArrayList<>(entries.values());
+                entries.clear();
+                weight = 0;
+            }
+        }
+        removed.forEach(Entry::stopListening);
+    }
+
+    /**
+     * Remove values of removed and updated elements. Change is reset after this method so it can be read again.
+     */
+    public void listChanged(ListChangeListener.Change<? extends T> change) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        while (change.next()) {
+            if (change.wasRemoved()) {
+                change.getRemoved().forEach(this::invalidate);
+            }
+            if (change.wasUpdated()) {
+                for (int i = change.getFrom(); i < change.getTo(); i++) {
+                    invalidate(change.getList().get(i));
+                }
+            }
+        }
+        change.reset();
+    }
+
+    private Entry find(Key key) {
+        if (weigher == null) {
+            return entries.get(key);
+        }
+        synchronized (this) {
+            return entries.get(key);
+        }
+    }
+
+    private void store(Key key, Entry entry, int computedVersion) {
+        Entry replaced;
+        if (weigher == null) {
+            replaced = entries.put(key, entry);
+            entry.listen();
+            if (version.get() != computedVersion) {
+                entries.remove(key, entry);
+                entry.stopListening();
+            }
+        }
+        else {
+            synchronized (this) {
+                replaced = entries.put(key, entry);
+                if (replaced != null) {
+                    weight -= replaced.weight;
+                }
+                entry.listen();
+                weight += entry.weight;
+                trim();
+            }
+        }
+        if (replaced != null) {
+            replaced.stopListening();
+        }
+    }
+
+    private void trim() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (weight > budget && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            iterator.remove();
+            weight -= entry.weight;
+            entry.stopListening();
+        }
+    }
+
+    private static class Key {
+
+        private final Object element;
+
+        Key(Object element) {
+            this.element = element;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).element == element;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(element);
+        }
+    }
+
+    private class Entry {
+
+        private final T element;
+        private final V value;
+        private final long weight;
+        private List<Observable> observables;
+        // strong reference is kept by the entry, so listener lives as long as value is cached
+        private InvalidationListener strongListener;
+        private InvalidationListener listener;
+
+        Entry(T element, V value, List<Observable> observables) {
+            this.element = element;
+            this.value = value;
+            this.weight = weigher != null ? weigher.applyAsLong(value) : 0L;
+            this.observables = observables;
+        }
+
+        void listen() {
+            if (observables.isEmpty()) {
+                return;
+            }
+            strongListener = observable -> {
+                invalidate(element);
+                Consumer<T> listener = invalidationListener;
+                if (listener != null) {
+                    listener.accept(element);
+                }
+            };
+            listener = new WeakInvalidationListener(strongListener);
+            observables.forEach(observable -> observable.addListener(listener));
+        }
+
+        void stopListening() {
+            if (listener != null) {
+                observables.forEach(observable -> observable.removeListener(listener));
+                listener = null;
+            }
+            observables = List.of();
+        }
+    }
+}
@@ -46,4 +46,15 @@ public class FunctionRawOrProperty<T, P> implements Function<T, P> {
         else return raw != null ? raw.apply(t) : property.apply(t).getValue();
     }
 
+    public boolean isProperty() {
+        return property != null;
+    }
+
+    /**
+     * @return observable value returned by property function or null if this function is raw.
+     */
+    public ObservableValue<P> observable(T t) {
+        return property != null ? property.apply(t) : null;
+    }
+
 }
@@ -0,0 +1,93 @@
+package utils;
+
+import javafx.beans.Observable;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.ListChangeListener;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Cache of normalized search keys of elements.
+ * Key of an element is a single string with lower cased results of all search functions separated by zero char,
+ * so one contains check covers all search functions and search text can not match across two results.
+ * Keys are cached by element identity. Key of the element is removed from cache when element is removed
+ * from the list or updated (listChanged method should be called from the list listener), or when one of
+ * the observable values returned by property search functions changes.
+ * <p>
+ * Property keys are cached only when computed on JavaFX thread, because cache listens to the properties.
+ * On other threads such keys are computed every time.
+ * <p>
+ * Keys can be read from any thread without locking, so background search does not contend with JavaFX thread.
+ * Keys computed while cache was cleared or invalidated are not stored.
+ *
+ * @param <T> type of elements.
+ */
+public class SearchKeyCache<T> {
+
+    private static final char SEPARATOR = '\u0000';
+
+    private final ElementCache<T, String> keys = new ElementCache<>();
+    private volatile List<FunctionRawOrProperty<T, String>> functions;
+
+    public SearchKeyCache(Collection<FunctionRawOrProperty<T, String>> functions) {
+        setFunctions(functions);
+    }
+
+    public void setFunctions(Collection<FunctionRawOrProperty<T, String>> functions) {
+        this.functions = new ArrayList<>(functions);
+        // cleared after functions are set, so keys computed with old functions are not stored
+        clear();
+    }
+
+    /**
+     * Set listener called after key of the element is removed because one of its properties changed.
+     * Listener is called on the thread property changed on.
+     */
+    public void setInvalidationListener(Consumer<T> listener) {
+        keys.setInvalidationListener(listener);
+    }
+
+    public String get(T t) {
+        return keys.getObserved(t, this::computeKey);
+    }
+
+    public void invalidate(T t) {
+        keys.invalidate(t);
+    }
+
+    public void clear() {
+        keys.clear();
+    }
+
+    /**
+     * Remove keys of removed and updated elements. Change is reset after this method so it can be read again.
+     */
+    public void listChanged(ListChangeListener.Change<? extends T> change) {
+        keys.listChanged(change);
+    }
+
+    private String computeKey(T t, List<Observable> observables) {
+        StringBuilder builder = new StringBuilder();
+        boolean first = true;
+        for (FunctionRawOrProperty<T, String> function : functions) {
+            String value;
+            if (function.isProperty()) {
+                ObservableValue<String> observable = function.observable(t);
+                observables.add(observable);
+                value = observable.getValue();
+            }
+            else {
+                value = function.apply(t);
+            }
+            if (!first) {
+                builder.append(SEPARATOR);
+            }
+            first = false;
+            if (value != null) {
+                builder.append(value.toLowerCase());
+            }
+        }
+        return builder.toString();
+    }
+}
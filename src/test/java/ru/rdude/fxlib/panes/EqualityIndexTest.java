@@ -0,0 +1,80 @@
+package ru.rdude.fxlib.panes;
+
+import javafx.beans.property.SimpleStringProperty;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EqualityIndexTest {
+
+    @Test
+    void findsEqualValues() {
+        EqualityIndex<Object> index = new EqualityIndex<>(o -> o, false);
+        List<Object> source = Arrays.asList("a", "b", null, "a", new SimpleStringProperty("a"));
+        assertEquals(bits(0, 3, 4), index.rows(source, "a"));
+        assertEquals(bits(2), index.nullRows(source));
+        assertEquals(bits(1, 2), index.matching(source, "b"::equals));
+        assertEquals(Map.of("a", 2), index.counts(source, bits(0, 2, 3)));
+    }
+
+    @Test
+    void expandsCollections() {
+        EqualityIndex<Object> index = new EqualityIndex<>(o -> o, true);
+        List<Object> source = List.of(List.of("red", "big"), List.of("red"), "red", List.of("big", "big"), List.of());
+        assertEquals(bits(0, 1, 2), index.rows(source, "red"));
+        assertEquals(bits(0, 2), index.all(source, List.of("red", "big")));
+        assertEquals(bits(0, 3), index.all(source, List.of("big")));
+        assertEquals(bits(0, 1, 2, 3), index.any(source, List.of("red", "big")));
+        assertEquals(bits(0, 1, 3, 4), index.any(source, List.of()));
+        assertEquals(Map.of("red", 3, "big", 2), index.counts(source, bits(0, 1, 2, 3, 4)));
+    }
+
+    @Test
+    void followsRandomChanges() {
+        Random random = new Random(5);
+        IndexChanges<Object> changes = new IndexChanges<>(random, () -> value(random));
+        EqualityIndex<Object> expanded = new EqualityIndex<>(o -> o, true);
+        EqualityIndex<Object> plain = new EqualityIndex<>(o -> o, false);
+        List<Object> source = changes.source(300);
+        for (int step = 0; step < 1000; step++) {
+            changes.change(source, expanded, plain);
+            String key = "v" + random.nextInt(4);
+            assertEquals(scan(source, o -> key.equals(o)), plain.rows(source, key), "step " + step);
+            assertEquals(scan(source, o -> key.equals(o) || (o instanceof Collection && ((Collection<?>) o).contains(key))),
+                    expanded.rows(source, key), "step " + step);
+            assertEquals(scan(source, o -> o instanceof Collection ? ((Collection<?>) o).contains(key) : key.equals(o)),
+                    expanded.all(source, new ArrayList<>(List.of(key))), "step " + step);
+        }
+    }
+
+    private static Object value(Random random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return null;
+            case 1:
+                return List.of("v" + random.nextInt(4), "v" + random.nextInt(4));
+            default:
+                return "v" + random.nextInt(4);
+        }
+    }
+
+    private static BitSet scan(List<Object> source, java.util.function.Predicate<Object> test) {
+        BitSet result = new BitSet();
+        for (int row = 0; row < source.size(); row++) {
+            if (test.test(source.get(row))) {
+                result.set(row);
+            }
+        }
+        return result;
+    }
+
+    private static BitSet bits(int... values) {
+        BitSet set = new BitSet();
+        for (int value : values) {
+            set.set(value);
+        }
+        return set;
+    }
+}
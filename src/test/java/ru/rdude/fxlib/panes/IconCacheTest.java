@@ -0,0 +1,59 @@
+package ru.rdude.fxlib.panes;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IconCacheTest {
+
+    // loaded images, so the test does not need JavaFX toolkit for background loading
+    private final IconCache cache = new IconCache(1000,
+            (url, width, height) -> new WritableImage((int) Math.ceil(width), (int) Math.ceil(height)));
+
+    @Test
+    void iconsAreCachedBySize() {
+        Image image = cache.acquire("a", 10, 10);
+        assertSame(image, cache.acquire("a", 10, 10));
+        assertNotSame(image, cache.acquire("a", 5, 5));
+        assertEquals(400 + 100, cache.getWeight());
+    }
+
+    @Test
+    void releasedIconsAreRemovedOverBudget() {
+        Image first = cache.acquire("a", 10, 10);
+        Image second = cache.acquire("b", 10, 10);
+        cache.release("a", 10, 10, first);
+        cache.release("b", 10, 10, second);
+        assertEquals(800, cache.getWeight());
+        cache.acquire("c", 10, 10);
+        assertEquals(800, cache.getWeight());
+        // least recently used icon was removed
+        assertNotSame(first, cache.acquire("a", 10, 10));
+    }
+
+    @Test
+    void iconsSomebodyWaitsForAreKept() {
+        Image first = cache.acquire("a", 10, 10);
+        Image second = cache.acquire("b", 10, 10);
+        Image third = cache.acquire("c", 10, 10);
+        assertEquals(1200, cache.getWeight());
+        cache.release("a", 10, 10, first);
+        assertEquals(800, cache.getWeight());
+        assertSame(second, cache.acquire("b", 10, 10));
+        assertSame(third, cache.acquire("c", 10, 10));
+    }
+
+    @Test
+    void budgetAndClear() {
+        Image first = cache.acquire("a", 10, 10);
+        cache.acquire("b", 10, 10);
+        cache.release("a", 10, 10, first);
+        cache.setBudget(0);
+        assertEquals(400, cache.getWeight());
+        cache.clear();
+        assertEquals(400, cache.getWeight());
+        assertThrows(IllegalArgumentException.class, () -> cache.setBudget(-1));
+    }
+}
@@ -0,0 +1,81 @@
+package ru.rdude.fxlib.panes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Applies random changes to a source list and the same changes to indexes built on it.
+ */
+class IndexChanges<T> {
+
+    private final Random random;
+    private final Supplier<T> elements;
+
+    IndexChanges(Random random, Supplier<T> elements) {
+        this.random = random;
+        this.elements = elements;
+    }
+
+    List<T> source(int size) {
+        List<T> source = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            source.add(elements.get());
+        }
+        return source;
+    }
+
+    /**
+     * Insert, remove, permute or update rows of the source.
+     */
+    @SafeVarargs
+    final void change(List<T> source, OptionIndex<T>... indexes) {
+        int operation = random.nextInt(source.isEmpty() ? 1 : 4);
+        if (operation == 0) {
+            int from = random.nextInt(source.size() + 1);
+            List<T> added = source(1 + random.nextInt(4));
+            source.addAll(from, added);
+            for (OptionIndex<T> index : indexes) {
+                index.insert(from, added);
+            }
+        }
+        else if (operation == 1) {
+            int from = random.nextInt(source.size());
+            int count = 1 + random.nextInt(Math.min(3, source.size() - from));
+            source.subList(from, from + count).clear();
+            for (OptionIndex<T> index : indexes) {
+                index.remove(from, count);
+            }
+        }
+        else if (operation == 2) {
+            int from = random.nextInt(source.size());
+            int length = Math.min(source.size() - from, 1 + random.nextInt(8));
+            int[] permutation = new int[length];
+            for (int i = 0; i < length; i++) {
+                permutation[i] = from + i;
+            }
+            for (int i = length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int value = permutation[i];
+                permutation[i] = permutation[j];
+                permutation[j] = value;
+            }
+            List<T> moved = new ArrayList<>(source.subList(from, from + length));
+            for (int i = 0; i < length; i++) {
+                source.set(permutation[i], moved.get(i));
+            }
+            for (OptionIndex<T> index : indexes) {
+                index.permute(from, permutation);
+            }
+        }
+        else {
+            int row = random.nextInt(source.size());
+            T t = elements.get();
+            source.set(row, t);
+            for (OptionIndex<T> index : indexes) {
+                index.update(row, t);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package ru.rdude.fxlib.panes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntListTest {
+
+    @Test
+    void addGrowsList() {
+        IntList list = new IntList(1);
+        for (int i = 0; i < 100; i++) {
+            list.add(i * 2);
+        }
+        assertEquals(100, list.size());
+        assertEquals(0, list.get(0));
+        assertEquals(198, list.last());
+        assertTrue(list.contains(64));
+        assertFalse(list.contains(65));
+    }
+
+    @Test
+    void insertAndRemoveShiftValues() {
+        IntList list = new IntList(new int[]{1, 3, 5});
+        list.insert(1, 2);
+        list.insert(4, 6);
+        list.insert(0, 0);
+        assertTrue(list.equalsArray(new int[]{0, 1, 2, 3, 5, 6}));
+        list.remove(0);
+        list.remove(4);
+        list.remove(1);
+        assertTrue(list.equalsArray(new int[]{1, 3, 5}));
+    }
+
+    @Test
+    void searchesValues() {
+        IntList list = new IntList(new int[]{2, 4, 8});
+        assertEquals(1, list.binarySearch(4));
+        assertEquals(-3, list.binarySearch(5));
+        assertEquals(2, list.indexOf(8));
+        assertEquals(-1, list.indexOf(3));
+    }
+
+    @Test
+    void emptyArrayList() {
+        IntList list = new IntList(new int[0]);
+        assertTrue(list.isEmpty());
+        list.add(7);
+        assertTrue(list.equalsArray(new int[]{7}));
+    }
+
+    @Test
+    void setSizeAndToBitSet() {
+        IntList list = new IntList();
+        list.add(1);
+        list.add(5);
+        list.add(9);
+        list.setSize(2);
+        list.set(1, 3);
+        BitSet expected = new BitSet();
+        expected.set(1);
+        expected.set(3);
+        assertEquals(expected, list.toBitSet());
+        list.clear();
+        assertTrue(list.isEmpty());
+    }
+}
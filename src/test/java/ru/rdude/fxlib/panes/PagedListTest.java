@@ -0,0 +1,139 @@
+package ru.rdude.fxlib.panes;
+
+import javafx.collections.ListChangeListener;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PagedListTest {
+
+    private static final int PAGE = PagedList.PAGE_SIZE;
+
+    /**
+     * Data source with a fixed number of elements which fetches are run manually.
+     */
+    private static class Source implements SearchPaneDataSource<Integer> {
+
+        int available;
+        int fetches;
+
+        Source(int available) {
+            this.available = available;
+        }
+
+        @Override
+        public int count(SearchPaneQuery<Integer> query) {
+            return available;
+        }
+
+        @Override
+        public List<Integer> fetch(SearchPaneQuery<Integer> query, int from, int to) {
+            fetches++;
+            List<Integer> elements = new ArrayList<>();
+            for (int i = from; i < Math.min(to, available); i++) {
+                elements.add(i);
+            }
+            return elements;
+        }
+    }
+
+    private final List<Runnable> tasks = new ArrayList<>();
+    private final Executor manual = tasks::add;
+    private final List<String> changes = new ArrayList<>();
+
+    private PagedList<Integer> list(Source source, int size, boolean prefetch) {
+        PagedList<Integer> list = new PagedList<>(source, new SearchPaneQuery<>("", List.of(), t -> true), size,
+                manual, Runnable::run, prefetch);
+        list.addListener((ListChangeListener<Integer>) change -> {
+            while (change.next()) {
+                if (change.wasUpdated()) {
+                    changes.add("update " + change.getFrom() + "-" + change.getTo());
+                }
+                else if (change.wasRemoved()) {
+                    changes.add("remove " + change.getFrom() + " " + change.getRemovedSize());
+                }
+            }
+        });
+        return list;
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    @Test
+    void elementIsNullUntilPageIsLoaded() {
+        Source source = new Source(PAGE * 3);
+        PagedList<Integer> list = list(source, PAGE * 3, false);
+        assertNull(list.get(PAGE + 1));
+        assertNull(list.get(PAGE + 2));
+        assertEquals(1, tasks.size());
+        runTasks();
+        assertEquals(PAGE + 1, (int) list.get(PAGE + 1));
+        assertEquals(List.of("update " + PAGE + "-" + 2 * PAGE), changes);
+        assertEquals(1, source.fetches);
+    }
+
+    @Test
+    void prefetchesNeighbourPages() {
+        Source source = new Source(PAGE * 3);
+        PagedList<Integer> list = list(source, PAGE * 3, true);
+        list.get(PAGE);
+        assertEquals(3, tasks.size());
+        runTasks();
+        assertEquals(0, (int) list.get(0));
+        assertEquals(3 * PAGE - 1, (int) list.get(3 * PAGE - 1));
+        assertEquals(3, source.fetches);
+    }
+
+    @Test
+    void shortPageShortensList() {
+        Source source = new Source(PAGE + 10);
+        PagedList<Integer> list = list(source, PAGE * 2, false);
+        list.get(PAGE);
+        source.available = PAGE + 5;
+        runTasks();
+        assertEquals(PAGE + 5, list.size());
+        assertEquals(PAGE + 4, (int) list.get(PAGE + 4));
+        assertEquals(Set.of("update " + PAGE + "-" + (PAGE + 5), "remove " + (PAGE + 5) + " " + (PAGE - 5)), new HashSet<>(changes));
+    }
+
+    @Test
+    void pageOfShortenedListIsIgnored() {
+        Source source = new Source(PAGE * 3);
+        PagedList<Integer> list = list(source, PAGE * 3, false);
+        list.get(2 * PAGE);
+        source.available = PAGE / 2;
+        list.get(0);
+        // first fetched page is empty now, second one is short
+        tasks.add(0, tasks.remove(1));
+        runTasks();
+        assertEquals(PAGE / 2, list.size());
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(PAGE));
+    }
+
+    @Test
+    void failedPageIsNotFetchedAgain() {
+        Source source = new Source(PAGE) {
+            @Override
+            public List<Integer> fetch(SearchPaneQuery<Integer> query, int from, int to) {
+                fetches++;
+                throw new IllegalStateException("offline");
+            }
+        };
+        PagedList<Integer> list = list(source, PAGE, false);
+        list.get(0);
+        assertThrows(IllegalStateException.class, this::runTasks);
+        assertNull(list.get(0));
+        assertTrue(tasks.isEmpty());
+        assertEquals(1, source.fetches);
+    }
+}
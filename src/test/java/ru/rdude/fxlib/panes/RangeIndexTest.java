@@ -0,0 +1,60 @@
+package ru.rdude.fxlib.panes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RangeIndexTest {
+
+    @Test
+    void findsValuesInRange() {
+        RangeIndex<Object> index = new RangeIndex<>(o -> o);
+        List<Object> source = Arrays.asList(5, 1.5, null, -3L, "text", 10, Double.NaN, 5);
+        assertEquals(bits(0, 1, 2, 4, 6, 7), index.rows(source, 1, 5));
+        assertEquals(bits(2, 3, 4, 6), index.rows(source, Double.NEGATIVE_INFINITY, 0));
+        assertEquals(bits(2, 4, 6), index.nullRows(source));
+    }
+
+    @Test
+    void negativeZeroIsZero() {
+        RangeIndex<Object> index = new RangeIndex<>(o -> o);
+        List<Object> source = List.of(-0.0, 0.0, 0);
+        assertEquals(bits(0, 1, 2), index.rows(source, 0, 0));
+        assertEquals(bits(), index.rows(source, Math.nextUp(0.0), Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    void followsRandomChanges() {
+        Random random = new Random(7);
+        IndexChanges<Object> changes = new IndexChanges<>(random,
+                () -> random.nextInt(10) == 0 ? null : (Object) (random.nextInt(21) - 10));
+        RangeIndex<Object> index = new RangeIndex<>(o -> o);
+        List<Object> source = changes.source(300);
+        for (int step = 0; step < 1000; step++) {
+            changes.change(source, index);
+            double min = random.nextInt(25) - 12;
+            double max = min + random.nextInt(10);
+            BitSet expected = new BitSet();
+            for (int row = 0; row < source.size(); row++) {
+                Integer value = (Integer) source.get(row);
+                if (value == null || (value >= min && value <= max)) {
+                    expected.set(row);
+                }
+            }
+            assertEquals(expected, index.rows(source, min, max), "step " + step);
+        }
+    }
+
+    private static BitSet bits(int... values) {
+        BitSet set = new BitSet();
+        for (int value : values) {
+            set.set(value);
+        }
+        return set;
+    }
+}
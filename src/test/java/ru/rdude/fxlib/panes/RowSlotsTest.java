@@ -0,0 +1,124 @@
+package ru.rdude.fxlib.panes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RowSlotsTest {
+
+    @Test
+    void slotsAreRowsUntilListIsOnlyAppended() {
+        RowSlots slots = new RowSlots();
+        assertEquals(0, slots.insert(0, 5));
+        assertEquals(5, slots.insert(5, 3));
+        assertEquals(8, slots.rows());
+        assertEquals(8, slots.slots());
+        BitSet set = bits(1, 7);
+        assertSame(set, slots.toRows(set));
+        assertSame(set, slots.toSlots(set));
+    }
+
+    @Test
+    void insertedRowsGetNewSlots() {
+        RowSlots slots = new RowSlots();
+        slots.insert(0, 3);
+        assertEquals(3, slots.insert(1, 2));
+        assertEquals(0, slots.slot(0));
+        assertEquals(3, slots.slot(1));
+        assertEquals(4, slots.slot(2));
+        assertEquals(1, slots.slot(3));
+        assertEquals(bits(1, 2), slots.toRows(bits(3, 4)));
+        assertEquals(bits(0, 4), slots.toSlots(bits(0, 2)));
+    }
+
+    @Test
+    void removedRowsLeaveDeadSlots() {
+        RowSlots slots = new RowSlots();
+        slots.insert(0, 5);
+        slots.remove(1, 2);
+        assertEquals(3, slots.rows());
+        assertEquals(5, slots.slots());
+        assertEquals(2, slots.dead());
+        assertEquals(3, slots.slot(1));
+        assertEquals(bits(0, 1), slots.toRows(bits(0, 1, 2, 3)));
+    }
+
+    @Test
+    void permutationMovesRows() {
+        RowSlots slots = new RowSlots();
+        slots.insert(0, 4);
+        slots.permute(1, new int[]{3, 1, 2});
+        assertEquals(0, slots.slot(0));
+        assertEquals(2, slots.slot(1));
+        assertEquals(3, slots.slot(2));
+        assertEquals(1, slots.slot(3));
+        assertEquals(bits(3), slots.toRows(bits(1)));
+    }
+
+    @Test
+    void mappingFollowsRandomChanges() {
+        Random random = new Random(1);
+        RowSlots slots = new RowSlots();
+        // slot of every row, same as in RowSlots
+        List<Integer> expected = new ArrayList<>();
+        int nextSlot = 0;
+        for (int step = 0; step < 2000; step++) {
+            int operation = random.nextInt(3);
+            if (operation == 0 || expected.isEmpty()) {
+                int from = random.nextInt(expected.size() + 1);
+                int count = 1 + random.nextInt(4);
+                assertEquals(nextSlot, slots.insert(from, count));
+                for (int i = 0; i < count; i++) {
+                    expected.add(from + i, nextSlot++);
+                }
+            }
+            else if (operation == 1) {
+                int from = random.nextInt(expected.size());
+                int count = 1 + random.nextInt(Math.min(3, expected.size() - from));
+                slots.remove(from, count);
+                expected.subList(from, from + count).clear();
+            }
+            else {
+                int from = random.nextInt(expected.size());
+                int length = expected.size() - from;
+                int[] permutation = shuffled(random, from, length);
+                slots.permute(from, permutation);
+                List<Integer> moved = new ArrayList<>(expected.subList(from, from + length));
+                for (int i = 0; i < length; i++) {
+                    expected.set(permutation[i], moved.get(i));
+                }
+            }
+            assertEquals(expected.size(), slots.rows());
+            for (int row = 0; row < expected.size(); row++) {
+                assertEquals((int) expected.get(row), slots.slot(row));
+            }
+        }
+    }
+
+    private static int[] shuffled(Random random, int from, int length) {
+        int[] permutation = new int[length];
+        for (int i = 0; i < length; i++) {
+            permutation[i] = from + i;
+        }
+        for (int i = length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int value = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = value;
+        }
+        return permutation;
+    }
+
+    private static BitSet bits(int... values) {
+        BitSet set = new BitSet();
+        for (int value : values) {
+            set.set(value);
+        }
+        return set;
+    }
+}
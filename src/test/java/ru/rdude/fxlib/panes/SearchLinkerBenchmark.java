@@ -0,0 +1,120 @@
+package ru.rdude.fxlib.panes;
+
+import javafx.application.Platform;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Control;
+import javafx.scene.control.TextField;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Compares controls linked by the generated linker with controls linked by reflection: time to link a controller
+ * and time to call linked getters for every element, which is what filtering does. Also checks that both ways
+ * link the same controls. Not a unit test, run main method manually, JavaFX toolkit is started to create controls.
+ */
+public class SearchLinkerBenchmark {
+
+    private static final int ELEMENTS = 100_000;
+    private static final int LINKS = 10_000;
+    private static final int ROUNDS = 10;
+
+    public static class Item {
+
+        private final String name;
+        private final boolean active;
+        private final int count;
+
+        Item(String name, boolean active, int count) {
+            this.name = name;
+            this.active = active;
+            this.count = count;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+
+    @AutoLinkControls(Item.class)
+    static class Controller {
+        TextField name = new TextField();
+        CheckBox active = new CheckBox();
+        ComboBox<Integer> count = new ComboBox<>();
+    }
+
+    @SuppressWarnings("unchecked")
+    public static void main(String[] args) throws ReflectiveOperationException {
+        Platform.startup(() -> {
+        });
+        try {
+            Controller controller = new Controller();
+            SearchPaneLinker<Controller, Item> linker = (SearchPaneLinker<Controller, Item>) Class
+                    .forName(SearchPaneLinker.linkerClassName(Controller.class))
+                    .getDeclaredConstructor().newInstance();
+            Map<Control, Function<Item, ?>> generated = linker.link(controller);
+            Map<Control, Function<Item, ?>> reflective = SearchPane.reflectiveLinks(controller, Item.class);
+            if (!generated.keySet().equals(reflective.keySet())) {
+                throw new IllegalStateException("Generated and reflective linkers link different controls");
+            }
+            List<Item> items = new ArrayList<>(ELEMENTS);
+            for (int i = 0; i < ELEMENTS; i++) {
+                items.add(new Item("item " + i, i % 2 == 0, i));
+            }
+            for (int round = 1; round <= ROUNDS; round++) {
+                // first rounds are warm up
+                boolean print = round > ROUNDS / 2;
+                long linkGenerated = time(() -> {
+                    for (int i = 0; i < LINKS; i++) {
+                        consume(linker.link(controller));
+                    }
+                });
+                long linkReflective = time(() -> {
+                    for (int i = 0; i < LINKS; i++) {
+                        consume(SearchPane.reflectiveLinks(controller, Item.class));
+                    }
+                });
+                long getGenerated = time(() -> getAll(generated, items));
+                long getReflective = time(() -> getAll(reflective, items));
+                if (print) {
+                    System.out.printf("link: generated %d ns, reflective %d ns; get: generated %d ns, reflective %d ns per element%n",
+                            linkGenerated / LINKS, linkReflective / LINKS, getGenerated / ELEMENTS, getReflective / ELEMENTS);
+                }
+            }
+            System.out.println(sink);
+        } finally {
+            Platform.exit();
+        }
+    }
+
+    private static int sink;
+
+    private static void getAll(Map<Control, Function<Item, ?>> links, List<Item> items) {
+        for (Function<Item, ?> getter : links.values()) {
+            for (Item item : items) {
+                consume(getter.apply(item));
+            }
+        }
+    }
+
+    private static void consume(Object object) {
+        sink += System.identityHashCode(object) & 1;
+    }
+
+    private static long time(Runnable runnable) {
+        long start = System.nanoTime();
+        runnable.run();
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,109 @@
+package ru.rdude.fxlib.panes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchQueryTest {
+
+    private static class Item {
+
+        final String name;
+        final Double price;
+        final List<String> tags;
+
+        Item(String name, Double price, String... tags) {
+            this.name = name;
+            this.price = price;
+            this.tags = List.of(tags);
+        }
+    }
+
+    private static final List<Item> ITEMS = List.of(
+            new Item("red apple", 3.0, "fruit", "red"),
+            new Item("green apple", -3.0, "fruit"),
+            new Item("tomato -3", 0.0, "vegetable", "red"),
+            new Item("big melon", -0.0, "fruit", "big"),
+            new Item("unknown", null));
+
+    @Test
+    void wordsAreCombinedWithAnd() {
+        assertRows("apple", 0, 1);
+        assertRows("apple red", 0);
+        assertRows("apple AND red", 0);
+        assertRows("", 0, 1, 2, 3, 4);
+    }
+
+    @Test
+    void orNotAndParentheses() {
+        assertRows("melon OR tomato", 2, 3);
+        assertRows("apple -red", 1);
+        assertRows("apple NOT red", 1);
+        assertRows("-(apple OR melon)", 2, 4);
+        assertRows("(apple OR melon) big", 3);
+    }
+
+    @Test
+    void quotesKeepSpacesAndKeywords() {
+        assertRows("\"red apple\"", 0);
+        assertRows("\"OR\"");
+        assertRows("name:\"apple OR\"");
+    }
+
+    @Test
+    void malformedQueriesAreLenient() {
+        assertRows("(apple", 0, 1);
+        assertRows("apple)", 0, 1);
+        assertRows("apple OR", 0, 1);
+        assertRows("NOT", 0, 1, 2, 3, 4);
+    }
+
+    @Test
+    void fieldTerms() {
+        assertRows("tags:red", 0, 2);
+        assertRows("tags=fru");
+        assertRows("tags=fruit", 0, 1, 3);
+        assertRows("price>0", 0);
+        assertRows("price>=0", 0, 2, 3);
+        assertRows("price<=-3", 1);
+        assertRows("unknown:red");
+    }
+
+    @Test
+    void minusBeforeDigitIsNumber() {
+        assertRows("-3", 2);
+        assertRows("price=-3", 1);
+        assertRows("price>-3", 0, 2, 3);
+        assertRows("-apple", 2, 3, 4);
+    }
+
+    @Test
+    void negativeZeroIsZero() {
+        assertRows("price=0", 2, 3);
+        assertRows("price<0", 1);
+        assertRows("price>-0", 0);
+    }
+
+    private static void assertRows(String text, int... rows) {
+        BitSet expected = new BitSet();
+        for (int row : rows) {
+            expected.set(row);
+        }
+        assertEquals(expected, search(text, false), "scanned " + text);
+        assertEquals(expected, search(text, true), "indexed " + text);
+    }
+
+    private static BitSet search(String text, boolean indexed) {
+        Map<String, QueryField<Item>> fields = new HashMap<>();
+        fields.put("name", new QueryField<>("name", item -> item.name, indexed));
+        fields.put("price", new QueryField<>("price", item -> item.price, indexed));
+        fields.put("tags", new QueryField<>("tags", item -> item.tags, indexed));
+        SearchQuery<Item> query = SearchQuery.compile(text, fields, new HashMap<>());
+        query.resolve(ITEMS, word -> null);
+        BitSet all = new BitSet();
+        all.set(0, ITEMS.size());
+        return query.filter(ITEMS, all, item -> item.name, () -> false);
+    }
+}
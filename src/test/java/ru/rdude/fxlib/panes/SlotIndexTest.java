@@ -0,0 +1,108 @@
+package ru.rdude.fxlib.panes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlotIndexTest {
+
+    /**
+     * Index that stores elements by slot and counts rebuilds.
+     */
+    private static class ListIndex extends SlotIndex<String> {
+
+        final List<String> values = new ArrayList<>();
+        int builds;
+
+        @Override
+        void addSlots(int first, List<? extends String> added) {
+            if (first == 0) {
+                builds++;
+            }
+            values.addAll(added);
+        }
+
+        @Override
+        void updateSlot(int slot, String s) {
+            values.set(slot, s);
+        }
+
+        @Override
+        void clear() {
+            values.clear();
+        }
+
+        String value(List<String> source, int row) {
+            ensureBuilt(source);
+            return values.get(slots.slot(row));
+        }
+    }
+
+    @Test
+    void builtByFirstQuery() {
+        ListIndex index = new ListIndex();
+        List<String> source = new ArrayList<>(List.of("a", "b"));
+        index.insert(0, List.of("ignored"));
+        assertEquals(0, index.builds);
+        assertEquals("b", index.value(source, 1));
+        assertEquals("a", index.value(source, 0));
+        assertEquals(1, index.builds);
+    }
+
+    @Test
+    void changesDoNotRebuild() {
+        ListIndex index = new ListIndex();
+        List<String> source = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            source.add("e" + i);
+        }
+        index.value(source, 0);
+        source.add(10, "new");
+        index.insert(10, List.of("new"));
+        source.remove(0);
+        index.remove(0, 1);
+        source.set(5, "changed");
+        index.update(5, "changed");
+        index.permute(0, new int[]{1, 0});
+        source.add(0, source.remove(1));
+        for (int row = 0; row < source.size(); row++) {
+            assertEquals(source.get(row), index.value(source, row));
+        }
+        assertEquals(1, index.builds);
+        assertEquals(1, index.stale.cardinality());
+    }
+
+    @Test
+    void rebuiltWhenTooManySlotsAreOutdated() {
+        ListIndex index = new ListIndex();
+        List<String> source = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            source.add("e" + i);
+        }
+        index.value(source, 0);
+        source.remove(0);
+        index.remove(0, 1);
+        source.set(0, "changed");
+        index.update(0, "changed");
+        assertEquals(1, index.builds);
+        source.set(1, "changed too");
+        index.update(1, "changed too");
+        assertEquals("changed too", index.value(source, 1));
+        assertEquals(2, index.builds);
+        assertTrue(index.stale.isEmpty());
+    }
+
+    @Test
+    void rebuiltWhenInvalidated() {
+        ListIndex index = new ListIndex();
+        List<String> source = new ArrayList<>(List.of("a"));
+        index.value(source, 0);
+        index.invalidate();
+        source.set(0, "b");
+        assertEquals("b", index.value(source, 0));
+        assertEquals(2, index.builds);
+    }
+}
@@ -0,0 +1,75 @@
+package ru.rdude.fxlib.panes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextSearchIndexTest {
+
+    private static final String[] NEEDLES = {"a", "ab", "abc", "bca", "cab", "abca", "zzz", "bb"};
+
+    @Test
+    void findsKeysContainingNeedle() {
+        TextSearchIndex<String> index = new TextSearchIndex<>(String::toLowerCase);
+        List<String> source = List.of("Apple", "pineapple", "Pear", "grape");
+        assertEquals(bits(0, 1), index.search(source, "apple", null));
+        assertEquals(bits(0, 1, 3), index.search(source, "ap", null));
+        assertEquals(bits(1), index.search(source, "apple", bits(1, 2)));
+        assertEquals(bits(), index.search(source, "plum", null));
+    }
+
+    @Test
+    void followsRemovalsPermutationsAndUpdates() {
+        Random random = new Random(3);
+        IndexChanges<String> changes = new IndexChanges<>(random, () -> word(random));
+        TextSearchIndex<String> index = new TextSearchIndex<>(s -> s);
+        List<String> source = changes.source(200);
+        for (int step = 0; step < 1000; step++) {
+            changes.change(source, index);
+            String needle = NEEDLES[random.nextInt(NEEDLES.length)];
+            BitSet within = random.nextBoolean() ? null : random(random, source.size());
+            assertEquals(scan(source, needle, within), index.search(source, needle, within), "step " + step);
+        }
+    }
+
+    private static BitSet scan(List<String> source, String needle, BitSet within) {
+        BitSet result = new BitSet();
+        for (int row = 0; row < source.size(); row++) {
+            if ((within == null || within.get(row)) && source.get(row).contains(needle)) {
+                result.set(row);
+            }
+        }
+        return result;
+    }
+
+    private static String word(Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = random.nextInt(7);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(3)));
+        }
+        return word.toString();
+    }
+
+    private static BitSet random(Random random, int size) {
+        BitSet set = new BitSet();
+        for (int i = 0; i < size; i++) {
+            if (random.nextBoolean()) {
+                set.set(i);
+            }
+        }
+        return set;
+    }
+
+    private static BitSet bits(int... values) {
+        BitSet set = new BitSet();
+        for (int value : values) {
+            set.set(value);
+        }
+        return set;
+    }
+}
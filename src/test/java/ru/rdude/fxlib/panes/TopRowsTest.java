@@ -0,0 +1,57 @@
+package ru.rdude.fxlib.panes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopRowsTest {
+
+    @Test
+    void keepsBestRowsFromBestToWorst() {
+        TopRows top = new TopRows(3);
+        top.offer(0, 5);
+        top.offer(1, 9);
+        top.offer(2, 1);
+        top.offer(3, 7);
+        top.offer(4, 0);
+        assertArrayEquals(new int[]{1, 3, 0}, top.toArray());
+    }
+
+    @Test
+    void equalScoresAreOrderedByRow() {
+        TopRows top = new TopRows(2);
+        top.offer(5, 1);
+        top.offer(2, 1);
+        top.offer(9, 1);
+        assertArrayEquals(new int[]{2, 5}, top.toArray());
+    }
+
+    @Test
+    void zeroLimitKeepsNothing() {
+        TopRows top = new TopRows(0);
+        top.offer(0, 1);
+        assertArrayEquals(new int[0], top.toArray());
+    }
+
+    @Test
+    void sameAsSorting() {
+        Random random = new Random(11);
+        for (int limit : new int[]{1, 10, 100, 1000}) {
+            TopRows top = new TopRows(limit);
+            List<int[]> offered = new ArrayList<>();
+            for (int row = 0; row < 500; row++) {
+                int score = random.nextInt(50);
+                top.offer(row, score);
+                offered.add(new int[]{row, score});
+            }
+            int[] expected = offered.stream()
+                    .sorted(Comparator.<int[]>comparingInt(pair -> -pair[1]).thenComparingInt(pair -> pair[0]))
+                    .limit(limit)
+                    .mapToInt(pair -> pair[0])
+                    .toArray();
+            assertArrayEquals(expected, top.toArray());
+        }
+    }
+}